@@ -0,0 +1,125 @@
+package com.stocktrade.config;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Tomcat only honours server.compression.min-response-size when it knows the body length, but Spring's
+// message converters flush right after writing, which commits the response as chunked and gets even a two-byte
+// body gzipped. Holding back flushes of compressible bodies below the threshold leaves them in the response
+// buffer until close, where Tomcat sets Content-Length and skips compression. Larger bodies flush as usual.
+public class CompressionThresholdFilter extends OncePerRequestFilter {
+    
+    private final long minResponseSize;
+    private final MediaType[] mimeTypes;
+    
+    public CompressionThresholdFilter(Compression compression) {
+        this.minResponseSize = compression.getMinResponseSize().toBytes();
+        String[] types = compression.getMimeTypes();
+        this.mimeTypes = new MediaType[types.length];
+        for (int i = 0; i < types.length; i++) {
+            mimeTypes[i] = MediaType.parseMediaType(types[i]);
+        }
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        filterChain.doFilter(request, new ThresholdResponse(response));
+    }
+    
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        for (MediaType mimeType : mimeTypes) {
+            if (mimeType.isCompatibleWith(mediaType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private final class ThresholdResponse extends HttpServletResponseWrapper {
+        private ThresholdOutputStream outputStream;
+        
+        ThresholdResponse(HttpServletResponse response) {
+            super(response);
+        }
+        
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new ThresholdOutputStream(super.getOutputStream(), this);
+            }
+            return outputStream;
+        }
+        
+        @Override
+        public void flushBuffer() throws IOException {
+            if (outputStream == null || !outputStream.holdsFlush()) {
+                super.flushBuffer();
+            }
+        }
+    }
+    
+    private final class ThresholdOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+        private final HttpServletResponse response;
+        private long written;
+        
+        ThresholdOutputStream(ServletOutputStream delegate, HttpServletResponse response) {
+            this.delegate = delegate;
+            this.response = response;
+        }
+        
+        boolean holdsFlush() {
+            return written < minResponseSize && isCompressible(response.getContentType());
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            written++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            written += len;
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            if (!holdsFlush()) {
+                delegate.flush();
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+        
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+        
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
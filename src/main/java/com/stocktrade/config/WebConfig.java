@@ -0,0 +1,26 @@
+package com.stocktrade.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@Configuration
+public class WebConfig {
+    
+    // Answers Accept: application/cbor. Built from Boot's Jackson builder so CBOR carries the same modules and
+    // settings as the JSON responses; Spring's default CBOR converter would skip spring.jackson.* customization.
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+    
+    @Bean
+    @ConditionalOnProperty(name = "server.compression.enabled", havingValue = "true")
+    public CompressionThresholdFilter compressionThresholdFilter(ServerProperties serverProperties) {
+        return new CompressionThresholdFilter(serverProperties.getCompression());
+    }
+}
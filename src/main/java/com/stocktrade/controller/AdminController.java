@@ -0,0 +1,79 @@
+package com.stocktrade.controller;
+
+import com.stocktrade.entity.User;
+import com.stocktrade.service.PasswordHashingService;
+import com.stocktrade.service.StockUniverseService;
+import com.stocktrade.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+    
+    @Autowired
+    private StockUniverseService stockUniverseService;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+    
+    // The body is the listing file itself (text/csv or application/json), streamed straight into the import
+    @PostMapping(value = "/stocks/import", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StockUniverseService.ImportResult> importStocks(
+            HttpServletRequest request,
+            @RequestParam(defaultValue = "false") boolean deactivateMissing) throws IOException {
+        StockUniverseService.Format format = MediaType.APPLICATION_JSON.isCompatibleWith(
+                MediaType.parseMediaType(request.getContentType()))
+                ? StockUniverseService.Format.JSON : StockUniverseService.Format.CSV;
+        try (InputStream in = request.getInputStream()) {
+            return ResponseEntity.ok(stockUniverseService.importUniverse(in, format, deactivateMissing));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+    
+    // Takes effect on the user's next request; cached principals are dropped when the change commits
+    @PutMapping("/users/{userId}/role")
+    public ResponseEntity<RoleResponse> updateRole(@PathVariable Long userId, @RequestParam User.Role role) {
+        try {
+            User user = userService.updateRole(userId, role);
+            return ResponseEntity.ok(new RoleResponse(user.getId(), user.getUsername(), user.getRole()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+    
+    // Pool size, queue depth, rejections and hash latency for login, registration and password changes
+    @GetMapping("/auth/hashing")
+    public ResponseEntity<PasswordHashingService.HashingStats> getHashingStats() {
+        return ResponseEntity.ok(passwordHashingService.getStats());
+    }
+    
+    public static class RoleResponse {
+        private final Long userId;
+        private final String username;
+        private final User.Role role;
+        
+        public RoleResponse(Long userId, String username, User.Role role) {
+            this.userId = userId;
+            this.username = username;
+            this.role = role;
+        }
+        
+        // Getters
+        public Long getUserId() { return userId; }
+        public String getUsername() { return username; }
+        public User.Role getRole() { return role; }
+    }
+}
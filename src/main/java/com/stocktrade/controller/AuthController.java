@@ -5,16 +5,20 @@ import com.stocktrade.dto.AuthResponse;
 import com.stocktrade.dto.RegisterRequest;
 import com.stocktrade.entity.User;
 import com.stocktrade.security.JwtTokenProvider;
+import com.stocktrade.service.PasswordHashingService;
 import com.stocktrade.service.UserService;
 import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
@@ -28,58 +32,70 @@ public class AuthController {
     @Autowired
     private JwtTokenProvider tokenProvider;
     
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+    
+    // The BCrypt check runs on the hashing pool and the servlet thread is released until it finishes.
+    // Nothing is put in the SecurityContext: the response carries a token and the pool thread is reused.
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody AuthRequest authRequest) {
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            authRequest.getUsername(),
-                            authRequest.getPassword()
-                    )
-            );
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@Valid @RequestBody AuthRequest authRequest) {
+        return passwordHashingService.submit(() -> authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(
+                        authRequest.getUsername(),
+                        authRequest.getPassword()
+                )
+        )).<ResponseEntity<?>>handle((authentication, error) -> {
+            if (error != null) {
+                if (PasswordHashingService.isRejection(error)) {
+                    return busy();
+                }
+                return ResponseEntity.badRequest()
+                        .body(new ErrorResponse("Invalid username or password"));
+            }
             
-            SecurityContextHolder.getContext().setAuthentication(authentication);
             String jwt = tokenProvider.generateToken(authentication);
             
             User user = (User) authentication.getPrincipal();
             
             return ResponseEntity.ok(new AuthResponse(jwt, user.getId(), user.getUsername(), 
                                                      user.getEmail(), user.getFullName()));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                    .body(new ErrorResponse("Invalid username or password"));
-        }
+        });
     }
     
+    // Duplicate checks stay on the request thread so they never take a hashing slot
     @PostMapping("/register")
-    public ResponseEntity<?> registerUser(@Valid @RequestBody RegisterRequest registerRequest) {
-        try {
-            if (userService.existsByUsername(registerRequest.getUsername())) {
-                return ResponseEntity.badRequest()
-                        .body(new ErrorResponse("Username is already taken!"));
-            }
-            
-            if (userService.existsByEmail(registerRequest.getEmail())) {
+    public CompletableFuture<ResponseEntity<?>> registerUser(@Valid @RequestBody RegisterRequest registerRequest) {
+        if (userService.existsByUsername(registerRequest.getUsername())) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Username is already taken!")));
+        }
+        
+        if (userService.existsByEmail(registerRequest.getEmail())) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Email is already in use!")));
+        }
+        
+        return passwordHashingService.submit(() -> userService.createUser(
+                registerRequest.getUsername(),
+                registerRequest.getEmail(),
+                registerRequest.getPassword(),
+                registerRequest.getFirstName(),
+                registerRequest.getLastName()
+        )).<ResponseEntity<?>>handle((user, error) -> {
+            if (error != null) {
+                if (PasswordHashingService.isRejection(error)) {
+                    return busy();
+                }
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
                 return ResponseEntity.badRequest()
-                        .body(new ErrorResponse("Email is already in use!"));
+                        .body(new ErrorResponse("Registration failed: " + cause.getMessage()));
             }
             
-            User user = userService.createUser(
-                    registerRequest.getUsername(),
-                    registerRequest.getEmail(),
-                    registerRequest.getPassword(),
-                    registerRequest.getFirstName(),
-                    registerRequest.getLastName()
-            );
-            
             String jwt = tokenProvider.generateToken(user.getUsername());
             
             return ResponseEntity.ok(new AuthResponse(jwt, user.getId(), user.getUsername(), 
                                                      user.getEmail(), user.getFullName()));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                    .body(new ErrorResponse("Registration failed: " + e.getMessage()));
-        }
+        });
     }
     
     @PostMapping("/validate")
@@ -89,8 +105,8 @@ public class AuthController {
                 token = token.substring(7);
             }
             
-            if (tokenProvider.validateToken(token)) {
-                String username = tokenProvider.getUsernameFromToken(token);
+            String username = tokenProvider.getUsernameFromToken(token);
+            if (username != null) {
                 return ResponseEntity.ok(new TokenValidationResponse(true, username));
             } else {
                 return ResponseEntity.ok(new TokenValidationResponse(false, null));
@@ -100,6 +116,13 @@ public class AuthController {
         }
     }
     
+    // Hashing queue is full; the client should back off briefly and retry
+    static ResponseEntity<?> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponse("Too many sign-in requests, please retry shortly"));
+    }
+    
     public static class ErrorResponse {
         private String message;
         
@@ -0,0 +1,32 @@
+package com.stocktrade.controller;
+
+import com.stocktrade.entity.User;
+import com.stocktrade.service.LeaderboardService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/leaderboard")
+public class LeaderboardController {
+    
+    @Autowired
+    private LeaderboardService leaderboardService;
+    
+    @GetMapping
+    public ResponseEntity<List<LeaderboardService.LeaderboardEntry>> getLeaderboard(
+            @RequestParam(defaultValue = "EQUITY") LeaderboardService.Metric metric,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(leaderboardService.getTopAccounts(metric, limit));
+    }
+    
+    @GetMapping("/me")
+    public ResponseEntity<LeaderboardService.AccountRanking> getMyRanking(@AuthenticationPrincipal User user) {
+        return leaderboardService.getAccountRanking(user.getId())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
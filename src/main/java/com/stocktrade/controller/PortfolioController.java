@@ -3,6 +3,7 @@ package com.stocktrade.controller;
 import com.stocktrade.entity.Portfolio;
 import com.stocktrade.entity.User;
 import com.stocktrade.service.PortfolioService;
+import com.stocktrade.service.RiskAnalyticsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -19,6 +20,9 @@ public class PortfolioController {
     @Autowired
     private PortfolioService portfolioService;
     
+    @Autowired
+    private RiskAnalyticsService riskAnalyticsService;
+    
     @GetMapping
     public ResponseEntity<List<Portfolio>> getPortfolio(@AuthenticationPrincipal User user) {
         List<Portfolio> portfolio = portfolioService.getUserPortfolio(user.getId());
@@ -75,6 +79,20 @@ public class PortfolioController {
         return ResponseEntity.ok(analysis);
     }
     
+    @GetMapping("/risk")
+    public ResponseEntity<?> getRiskAnalysis(@AuthenticationPrincipal User user,
+                                             @RequestParam(defaultValue = "90") int lookbackDays,
+                                             @RequestParam(defaultValue = "0.95") double confidenceLevel) {
+        try {
+            RiskAnalyticsService.PortfolioRiskReport report =
+                    riskAnalyticsService.analyzePortfolioRisk(user.getId(), lookbackDays, confidenceLevel);
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Risk analysis failed: " + e.getMessage()));
+        }
+    }
+    
     @GetMapping("/stats")
     public ResponseEntity<PortfolioStatsResponse> getPortfolioStats(@AuthenticationPrincipal User user) {
         long holdingsCount = portfolioService.getHoldingsCount(user.getId());
@@ -219,4 +237,20 @@ public class PortfolioController {
             this.averageCostBasis = averageCostBasis;
         }
     }
+    
+    public static class ErrorResponse {
+        private String message;
+        
+        public ErrorResponse(String message) {
+            this.message = message;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
 }
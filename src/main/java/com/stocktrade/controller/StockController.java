@@ -1,75 +1,190 @@
 package com.stocktrade.controller;
 
 import com.stocktrade.entity.Stock;
+import com.stocktrade.service.CandleService;
+import com.stocktrade.service.MarketBreadthService;
+import com.stocktrade.service.MarketSnapshotService;
+import com.stocktrade.service.StockRankingService;
+import com.stocktrade.service.StockScreenerService;
+import com.stocktrade.service.StockSearchService;
 import com.stocktrade.service.StockService;
+import com.stocktrade.service.TradeActivityService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/stocks")
 public class StockController {
     
+    private static final int MAX_BULK_QUOTES = 100;
+    private static final int MAX_SCREEN_RESULTS = 500;
+    
     @Autowired
     private StockService stockService;
     
-    @GetMapping
-    public ResponseEntity<List<Stock>> getAllStocks() {
-        List<Stock> stocks = stockService.findAllActiveStocks();
-        return ResponseEntity.ok(stocks);
+    @Autowired
+    private TradeActivityService tradeActivityService;
+    
+    @Autowired
+    private CandleService candleService;
+    
+    @Autowired
+    private StockRankingService stockRankingService;
+    
+    @Autowired
+    private MarketSnapshotService marketSnapshotService;
+    
+    @Autowired
+    private StockSearchService stockSearchService;
+    
+    @Autowired
+    private MarketBreadthService marketBreadthService;
+    
+    @Autowired
+    private StockScreenerService stockScreenerService;
+    
+    // Pre-rendered bytes; an If-None-Match hit on the ETag is answered with 304 by Spring
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<byte[]> getAllStocks(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        MarketSnapshotService.MarketSnapshot snapshot = marketSnapshotService.getSnapshot();
+        boolean cbor = prefersCbor(accept);
+        boolean gzip = acceptsGzip(acceptEncoding);
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(cbor ? MediaType.APPLICATION_CBOR : MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(snapshot.getETag(cbor, gzip))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(snapshot.getBody(cbor, gzip));
     }
     
     @GetMapping("/search")
-    public ResponseEntity<List<Stock>> searchStocks(@RequestParam String query) {
-        List<Stock> stocks = stockService.searchStocks(query);
+    public ResponseEntity<List<Stock>> searchStocks(@RequestParam String query,
+                                                    @RequestParam(required = false) Integer limit) {
+        List<Stock> stocks = stockSearchService.search(query, limit != null ? Math.max(limit, 1) : Integer.MAX_VALUE);
         return ResponseEntity.ok(stocks);
     }
     
     @GetMapping("/{symbol}")
-    public ResponseEntity<Stock> getStock(@PathVariable String symbol) {
-        Optional<Stock> stock = stockService.findActiveBySymbol(symbol);
-        return stock.map(ResponseEntity::ok)
-                   .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<Stock> getStock(@PathVariable String symbol, WebRequest request) {
+        Stock stock = stockRankingService.getActiveStock(symbol.toUpperCase());
+        if (stock == null) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean cbor = prefersCbor(request.getHeader(HttpHeaders.ACCEPT));
+        if (request.checkNotModified(stockETag(stock, cbor))) {
+            return null;
+        }
+        return ResponseEntity.ok().header(HttpHeaders.VARY, HttpHeaders.ACCEPT).body(stock);
     }
     
     @GetMapping("/{symbol}/quote")
-    public ResponseEntity<StockQuoteResponse> getStockQuote(@PathVariable String symbol) {
+    public ResponseEntity<StockQuoteResponse> getStockQuote(@PathVariable String symbol, WebRequest request) {
         try {
-            Optional<Stock> stockOpt = stockService.findActiveBySymbol(symbol);
-            if (stockOpt.isEmpty()) {
+            Stock stock = stockRankingService.getActiveStock(symbol.toUpperCase());
+            if (stock == null) {
                 return ResponseEntity.notFound().build();
             }
             
-            Stock stock = stockOpt.get();
-            
             // Refresh data if stale
-            if (stockService.isMarketDataStale(symbol, 5)) {
+            if (stock.isDataStale(5)) {
                 stock = stockService.refreshStockData(symbol);
             }
             
-            StockQuoteResponse quote = new StockQuoteResponse(
-                    stock.getSymbol(),
-                    stock.getCompanyName(),
-                    stock.getCurrentPrice(),
-                    stock.getPreviousClose(),
-                    stock.getPriceChange(),
-                    stock.getPriceChangePercentage(),
-                    stock.getDayHigh(),
-                    stock.getDayLow(),
-                    stock.getVolume(),
-                    stock.getLastUpdated()
-            );
+            // Trade activity changes with trades and as its windows slide, so it is part of the validator
+            Map<String, TradeActivityService.WindowStats> tradeActivity = tradeActivityService.getAllWindowStats(stock.getSymbol());
+            boolean cbor = prefersCbor(request.getHeader(HttpHeaders.ACCEPT));
+            if (request.checkNotModified(quoteETag(stock, tradeActivity, cbor))) {
+                return null;
+            }
             
-            return ResponseEntity.ok(quote);
+            return ResponseEntity.ok().header(HttpHeaders.VARY, HttpHeaders.ACCEPT).body(toQuote(stock, tradeActivity));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
+    // One payload for a watchlist: stale symbols are refreshed together under one deadline, and any that
+    // miss it are returned with their stored data. Unknown or inactive symbols are left out.
+    @GetMapping("/quotes")
+    public ResponseEntity<List<StockQuoteResponse>> getStockQuotes(@RequestParam List<String> symbols) {
+        Set<String> requested = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            if (!symbol.isBlank()) {
+                requested.add(symbol.trim().toUpperCase());
+            }
+        }
+        if (requested.size() > MAX_BULK_QUOTES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_BULK_QUOTES + " symbols per request");
+        }
+        
+        Map<String, Stock> stocks = new HashMap<>();
+        List<String> stale = new ArrayList<>();
+        for (String symbol : requested) {
+            Stock stock = stockRankingService.getActiveStock(symbol);
+            if (stock != null) {
+                stocks.put(symbol, stock);
+                if (stock.isDataStale(5)) {
+                    stale.add(symbol);
+                }
+            }
+        }
+        if (!stale.isEmpty()) {
+            stocks.putAll(stockService.refreshStocks(stale));
+        }
+        
+        List<StockQuoteResponse> quotes = new ArrayList<>(stocks.size());
+        for (String symbol : requested) {
+            Stock stock = stocks.get(symbol);
+            if (stock != null) {
+                quotes.add(toQuote(stock, tradeActivityService.getAllWindowStats(symbol)));
+            }
+        }
+        return ResponseEntity.ok(quotes);
+    }
+    
+    // Without from/to, returns the last 100 bars of the interval
+    @GetMapping("/{symbol}/candles")
+    public ResponseEntity<List<CandleService.CandleBar>> getCandles(@PathVariable String symbol,
+                                                                    @RequestParam(defaultValue = "1m") String interval,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            CandleService.Interval candleInterval = CandleService.Interval.fromLabel(interval);
+            LocalDateTime end = to != null ? to : LocalDateTime.now();
+            LocalDateTime start = from != null ? from : end.minusSeconds(candleInterval.getSeconds() * 100);
+            return ResponseEntity.ok(candleService.getCandles(symbol, candleInterval, start, end));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+    
     @GetMapping("/{symbol}/refresh")
     public ResponseEntity<Stock> refreshStockData(@PathVariable String symbol) {
         try {
@@ -82,62 +197,85 @@ public class StockController {
     
     @GetMapping("/popular")
     public ResponseEntity<List<Stock>> getPopularStocks() {
-        List<Stock> stocks = stockService.findStocksByVolumeDesc();
         // Return top 20 most active stocks
-        List<Stock> topStocks = stocks.size() > 20 ? stocks.subList(0, 20) : stocks;
-        return ResponseEntity.ok(topStocks);
+        return ResponseEntity.ok(stockRankingService.top(StockRankingService.Ranking.POPULAR, 20));
+    }
+    
+    // What users of this platform traded in the last N minutes (at most 60), from memory
+    @GetMapping("/most-traded")
+    public ResponseEntity<List<TradeActivityService.SymbolActivity>> getMostTradedStocks(@RequestParam(defaultValue = "15") int minutes,
+                                                                                         @RequestParam(defaultValue = "10") int limit) {
+        long windowMinutes = Math.max(1, Math.min(minutes, TradeActivityService.MOST_TRADED_SPAN.toMinutes()));
+        int size = Math.max(1, Math.min(limit, 50));
+        return ResponseEntity.ok(tradeActivityService.getMostTraded(Duration.ofMinutes(windowMinutes), size));
     }
     
     @GetMapping("/top-gainers")
     public ResponseEntity<List<Stock>> getTopGainers() {
-        List<Stock> stocks = stockService.findAllActiveStocks();
-        
-        // Sort by price change percentage (descending)
-        stocks.sort((s1, s2) -> {
-            BigDecimal change1 = s1.getPriceChangePercentage();
-            BigDecimal change2 = s2.getPriceChangePercentage();
-            return change2.compareTo(change1);
-        });
-        
-        List<Stock> topGainers = stocks.size() > 20 ? stocks.subList(0, 20) : stocks;
-        return ResponseEntity.ok(topGainers);
+        return ResponseEntity.ok(stockRankingService.top(StockRankingService.Ranking.GAINERS, 20));
     }
     
     @GetMapping("/top-losers")
     public ResponseEntity<List<Stock>> getTopLosers() {
-        List<Stock> stocks = stockService.findAllActiveStocks();
-        
-        // Sort by price change percentage (ascending)
-        stocks.sort((s1, s2) -> {
-            BigDecimal change1 = s1.getPriceChangePercentage();
-            BigDecimal change2 = s2.getPriceChangePercentage();
-            return change1.compareTo(change2);
-        });
-        
-        List<Stock> topLosers = stocks.size() > 20 ? stocks.subList(0, 20) : stocks;
-        return ResponseEntity.ok(topLosers);
+        return ResponseEntity.ok(stockRankingService.top(StockRankingService.Ranking.LOSERS, 20));
     }
     
     @GetMapping("/most-expensive")
     public ResponseEntity<List<Stock>> getMostExpensiveStocks() {
-        List<Stock> stocks = stockService.findStocksByPriceDesc();
-        List<Stock> topExpensive = stocks.size() > 20 ? stocks.subList(0, 20) : stocks;
-        return ResponseEntity.ok(topExpensive);
+        return ResponseEntity.ok(stockRankingService.top(StockRankingService.Ranking.MOST_EXPENSIVE, 20));
     }
     
     @GetMapping("/cheapest")
     public ResponseEntity<List<Stock>> getCheapestStocks() {
-        List<Stock> stocks = stockService.findStocksByPriceAsc();
-        List<Stock> cheapest = stocks.size() > 20 ? stocks.subList(0, 20) : stocks;
-        return ResponseEntity.ok(cheapest);
+        return ResponseEntity.ok(stockRankingService.top(StockRankingService.Ranking.CHEAPEST, 20));
+    }
+    
+    @GetMapping("/breadth")
+    public ResponseEntity<MarketBreadthService.MarketBreadth> getMarketBreadth() {
+        return ResponseEntity.ok(marketBreadthService.getBreadth());
+    }
+    
+    // Range filters on any combination of attributes, each bound inclusive and optional; stocks missing a
+    // filtered attribute are excluded. matched counts every hit, stocks holds the first limit (at most 500).
+    @GetMapping("/screen")
+    public ResponseEntity<StockScreenerService.ScreenResult> screenStocks(
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Double minChangePercent,
+            @RequestParam(required = false) Double maxChangePercent,
+            @RequestParam(required = false) Double minPeRatio,
+            @RequestParam(required = false) Double maxPeRatio,
+            @RequestParam(required = false) Double minDividendYield,
+            @RequestParam(required = false) Double maxDividendYield,
+            @RequestParam(required = false) Double minMarketCap,
+            @RequestParam(required = false) Double maxMarketCap,
+            @RequestParam(required = false) Double minVolume,
+            @RequestParam(required = false) Double maxVolume,
+            @RequestParam(defaultValue = "MARKET_CAP") StockScreenerService.Field sortBy,
+            @RequestParam(defaultValue = "desc") String order,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            List<StockScreenerService.Range> ranges = new ArrayList<>();
+            addRange(ranges, StockScreenerService.Field.PRICE, minPrice, maxPrice);
+            addRange(ranges, StockScreenerService.Field.CHANGE_PERCENT, minChangePercent, maxChangePercent);
+            addRange(ranges, StockScreenerService.Field.PE_RATIO, minPeRatio, maxPeRatio);
+            addRange(ranges, StockScreenerService.Field.DIVIDEND_YIELD, minDividendYield, maxDividendYield);
+            addRange(ranges, StockScreenerService.Field.MARKET_CAP, minMarketCap, maxMarketCap);
+            addRange(ranges, StockScreenerService.Field.VOLUME, minVolume, maxVolume);
+            boolean descending = !"asc".equalsIgnoreCase(order);
+            int size = Math.max(1, Math.min(limit, MAX_SCREEN_RESULTS));
+            return ResponseEntity.ok(stockScreenerService.screen(ranges, sortBy, descending, size));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
     
     @GetMapping("/stats")
     public ResponseEntity<StockStatsResponse> getStockStats() {
-        long totalStocks = stockService.getActiveStockCount();
-        List<Stock> recentlyTraded = stockService.getStocksWithRecentTrades(24);
+        long totalStocks = marketBreadthService.getBreadth().getMarket().getStockCount();
+        long recentlyTraded = tradeActivityService.countActiveSymbols(TradeActivityService.Window.ONE_DAY);
         
-        StockStatsResponse stats = new StockStatsResponse(totalStocks, recentlyTraded.size());
+        StockStatsResponse stats = new StockStatsResponse(totalStocks, recentlyTraded);
         return ResponseEntity.ok(stats);
     }
     
@@ -154,6 +292,101 @@ public class StockController {
         }
     }
     
+    private static StockQuoteResponse toQuote(Stock stock, Map<String, TradeActivityService.WindowStats> tradeActivity) {
+        StockQuoteResponse quote = new StockQuoteResponse(
+                stock.getSymbol(),
+                stock.getCompanyName(),
+                stock.getCurrentPrice(),
+                stock.getPreviousClose(),
+                stock.getPriceChange(),
+                stock.getPriceChangePercentage(),
+                stock.getDayHigh(),
+                stock.getDayLow(),
+                stock.getVolume(),
+                stock.getLastUpdated()
+        );
+        quote.setTradeActivity(tradeActivity);
+        return quote;
+    }
+    
+    // Whether the client ranks CBOR above JSON; a wildcard or no Accept header gets JSON
+    private static boolean prefersCbor(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+            if (mediaType.includes(MediaType.APPLICATION_CBOR)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // gzip (or its alias x-gzip) counts unless its q is 0, as with Tomcat's compression; without an explicit
+    // entry a wildcard decides
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double wildcard = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                return quality > 0;
+            }
+            if (coding.equals("*")) {
+                wildcard = quality;
+            }
+        }
+        return wildcard != null && wildcard > 0;
+    }
+    
+    private static void addRange(List<StockScreenerService.Range> ranges, StockScreenerService.Field field,
+                                 Double min, Double max) {
+        if (min != null || max != null) {
+            ranges.add(new StockScreenerService.Range(field, min, max));
+        }
+    }
+    
+    // JSON and CBOR bodies are different representations, so they must not share a strong ETag. No Last-Modified
+    // is sent: HTTP dates have one-second resolution and don't cover trade activity, so they would answer 304
+    // for changes the tag catches.
+    private static String stockETag(Stock stock, boolean cbor) {
+        return "\"" + stockVersion(stock) + (cbor ? "-cbor" : "") + "\"";
+    }
+    
+    private static String quoteETag(Stock stock, Map<String, TradeActivityService.WindowStats> tradeActivity, boolean cbor) {
+        int activityHash = 1;
+        for (TradeActivityService.WindowStats stats : tradeActivity.values()) {
+            activityHash = 31 * activityHash + Objects.hash(stats.getVwap(), stats.getVolume(), stats.getTradeCount());
+        }
+        return "\"" + stockVersion(stock) + "-" + Integer.toHexString(activityHash) + (cbor ? "-cbor" : "") + "\"";
+    }
+    
+    // lastUpdated moves on every saved change to the row; the price is included so a tag reads as a price version
+    private static String stockVersion(Stock stock) {
+        Instant updated = stock.getLastUpdated().atZone(ZoneId.systemDefault()).toInstant();
+        long micros = updated.getEpochSecond() * 1_000_000 + updated.getNano() / 1_000;
+        return Long.toHexString(micros) + "-" + stock.getCurrentPrice().toPlainString();
+    }
+    
     public static class StockQuoteResponse {
         private String symbol;
         private String companyName;
@@ -165,6 +398,7 @@ public class StockController {
         private BigDecimal dayLow;
         private Long volume;
         private java.time.LocalDateTime lastUpdated;
+        private Map<String, TradeActivityService.WindowStats> tradeActivity;
         
         public StockQuoteResponse(String symbol, String companyName, BigDecimal currentPrice,
                                  BigDecimal previousClose, BigDecimal priceChange, BigDecimal priceChangePercentage,
@@ -212,6 +446,9 @@ public class StockController {
         
         public java.time.LocalDateTime getLastUpdated() { return lastUpdated; }
         public void setLastUpdated(java.time.LocalDateTime lastUpdated) { this.lastUpdated = lastUpdated; }
+        
+        public Map<String, TradeActivityService.WindowStats> getTradeActivity() { return tradeActivity; }
+        public void setTradeActivity(Map<String, TradeActivityService.WindowStats> tradeActivity) { this.tradeActivity = tradeActivity; }
     }
     
     public static class StockStatsResponse {
@@ -1,20 +1,35 @@
 package com.stocktrade.controller;
 
 import com.stocktrade.dto.TradeRequest;
+import com.stocktrade.entity.RealizedGain;
+import com.stocktrade.entity.TaxLot;
 import com.stocktrade.entity.Trade;
 import com.stocktrade.entity.User;
+import com.stocktrade.service.TradeExportService;
 import com.stocktrade.service.TradeService;
 import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/trades")
@@ -23,6 +38,12 @@ public class TradeController {
     @Autowired
     private TradeService tradeService;
     
+    @Autowired
+    private TradeExportService tradeExportService;
+    
+    @Value("${trades.export.timeout-ms:600000}")
+    private long exportTimeoutMillis;
+    
     @PostMapping("/buy")
     public ResponseEntity<?> executeBuyOrder(@AuthenticationPrincipal User user,
                                            @Valid @RequestBody TradeRequest tradeRequest) {
@@ -58,10 +79,15 @@ public class TradeController {
     }
     
     @GetMapping("/history")
-    public ResponseEntity<Page<Trade>> getTradeHistory(@AuthenticationPrincipal User user,
-                                                      Pageable pageable) {
-        Page<Trade> trades = tradeService.getUserTrades(user.getId(), pageable);
-        return ResponseEntity.ok(trades);
+    public ResponseEntity<?> getTradeHistory(@AuthenticationPrincipal User user,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(defaultValue = "20") int size) {
+        try {
+            TradeService.TradeHistoryPage page = tradeService.getUserTradeHistory(user.getId(), cursor, size);
+            return ResponseEntity.ok(new TradeHistoryResponse(page));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
     }
     
     @GetMapping("/history/all")
@@ -70,6 +96,40 @@ public class TradeController {
         return ResponseEntity.ok(trades);
     }
     
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTradeHistory(@AuthenticationPrincipal User user,
+                                                                    @RequestParam(defaultValue = "ndjson") String format,
+                                                                    NativeWebRequest request) {
+        TradeExportService.Format exportFormat;
+        try {
+            exportFormat = TradeExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + format);
+        }
+        
+        // A long history can take minutes to stream. The timeout is raised for this request only, just before
+        // async processing starts; every other async endpoint keeps the default.
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(TradeController.class.getName() + ".export",
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest asyncRequest, Callable<T> task) {
+                        ((AsyncWebRequest) asyncRequest).setTimeout(exportTimeoutMillis);
+                    }
+                });
+        
+        Long userId = user.getId();
+        StreamingResponseBody body = out -> tradeExportService.exportUserTrades(userId, exportFormat, out);
+        boolean csv = exportFormat == TradeExportService.Format.CSV;
+        MediaType contentType = csv
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson");
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"trades." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
+    
     @GetMapping("/history/{symbol}")
     public ResponseEntity<List<Trade>> getTradeHistoryForStock(@AuthenticationPrincipal User user,
                                                               @PathVariable String symbol) {
@@ -85,10 +145,12 @@ public class TradeController {
     }
     
     @GetMapping("/history/between")
-    public ResponseEntity<List<Trade>> getTradeHistoryBetween(@AuthenticationPrincipal User user,
-                                                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fromDate,
-                                                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime toDate) {
-        List<Trade> trades = tradeService.getUserTradesBetween(user.getId(), fromDate, toDate);
+    public ResponseEntity<List<TradeResponse>> getTradeHistoryBetween(@AuthenticationPrincipal User user,
+                                                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fromDate,
+                                                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime toDate) {
+        List<TradeResponse> trades = tradeService.getUserTradesBetween(user.getId(), fromDate, toDate).stream()
+                .map(TradeResponse::new)
+                .collect(Collectors.toList());
         return ResponseEntity.ok(trades);
     }
     
@@ -98,6 +160,23 @@ public class TradeController {
         return ResponseEntity.ok(summary);
     }
     
+    @GetMapping("/realized")
+    public ResponseEntity<List<RealizedGainResponse>> getRealizedGains(@AuthenticationPrincipal User user) {
+        List<RealizedGainResponse> gains = tradeService.getRealizedGains(user.getId()).stream()
+                .map(RealizedGainResponse::new)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(gains);
+    }
+    
+    @GetMapping("/lots/{symbol}")
+    public ResponseEntity<List<TaxLotResponse>> getOpenLots(@AuthenticationPrincipal User user,
+                                                            @PathVariable String symbol) {
+        List<TaxLotResponse> lots = tradeService.getOpenLots(user.getId(), symbol).stream()
+                .map(TaxLotResponse::new)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(lots);
+    }
+    
     @GetMapping("/validate/buy")
     public ResponseEntity<TradeValidationResponse> validateBuyOrder(@AuthenticationPrincipal User user,
                                                                    @RequestParam String symbol,
@@ -202,4 +281,100 @@ public class TradeController {
             this.tradedSymbols = tradedSymbols;
         }
     }
+    
+    public static class TradeHistoryResponse {
+        private List<TradeResponse> trades;
+        private String nextCursor;
+        private boolean hasMore;
+        
+        public TradeHistoryResponse(TradeService.TradeHistoryPage page) {
+            this.trades = page.getTrades().stream()
+                    .map(TradeResponse::new)
+                    .collect(Collectors.toList());
+            this.nextCursor = page.getNextCursor();
+            this.hasMore = page.isHasMore();
+        }
+        
+        public List<TradeResponse> getTrades() { return trades; }
+        public String getNextCursor() { return nextCursor; }
+        public boolean isHasMore() { return hasMore; }
+    }
+    
+    public static class TradeResponse {
+        private Long id;
+        private String symbol;
+        private Trade.TradeType tradeType;
+        private Integer quantity;
+        private BigDecimal price;
+        private BigDecimal totalAmount;
+        private Trade.TradeStatus tradeStatus;
+        private LocalDateTime executedAt;
+        
+        public TradeResponse(Trade trade) {
+            this.id = trade.getId();
+            this.symbol = trade.getStock().getSymbol();
+            this.tradeType = trade.getTradeType();
+            this.quantity = trade.getQuantity();
+            this.price = trade.getPrice();
+            this.totalAmount = trade.getTotalAmount();
+            this.tradeStatus = trade.getTradeStatus();
+            this.executedAt = trade.getExecutedAt();
+        }
+        
+        public Long getId() { return id; }
+        public String getSymbol() { return symbol; }
+        public Trade.TradeType getTradeType() { return tradeType; }
+        public Integer getQuantity() { return quantity; }
+        public BigDecimal getPrice() { return price; }
+        public BigDecimal getTotalAmount() { return totalAmount; }
+        public Trade.TradeStatus getTradeStatus() { return tradeStatus; }
+        public LocalDateTime getExecutedAt() { return executedAt; }
+    }
+    
+    public static class RealizedGainResponse {
+        private String symbol;
+        private Long sharesSold;
+        private BigDecimal proceeds;
+        private BigDecimal costBasis;
+        private BigDecimal realizedGainLoss;
+        private BigDecimal realizedGainLossPercentage;
+        
+        public RealizedGainResponse(RealizedGain gain) {
+            this.symbol = gain.getStock().getSymbol();
+            this.sharesSold = gain.getSharesSold();
+            this.proceeds = gain.getProceeds();
+            this.costBasis = gain.getCostBasis();
+            this.realizedGainLoss = gain.getRealizedGainLoss();
+            this.realizedGainLossPercentage = gain.getRealizedGainLossPercentage();
+        }
+        
+        public String getSymbol() { return symbol; }
+        public Long getSharesSold() { return sharesSold; }
+        public BigDecimal getProceeds() { return proceeds; }
+        public BigDecimal getCostBasis() { return costBasis; }
+        public BigDecimal getRealizedGainLoss() { return realizedGainLoss; }
+        public BigDecimal getRealizedGainLossPercentage() { return realizedGainLossPercentage; }
+    }
+    
+    public static class TaxLotResponse {
+        private Long lotId;
+        private Integer originalQuantity;
+        private Integer remainingQuantity;
+        private BigDecimal costPerShare;
+        private LocalDateTime acquiredAt;
+        
+        public TaxLotResponse(TaxLot lot) {
+            this.lotId = lot.getId();
+            this.originalQuantity = lot.getOriginalQuantity();
+            this.remainingQuantity = lot.getRemainingQuantity();
+            this.costPerShare = lot.getCostPerShare();
+            this.acquiredAt = lot.getAcquiredAt();
+        }
+        
+        public Long getLotId() { return lotId; }
+        public Integer getOriginalQuantity() { return originalQuantity; }
+        public Integer getRemainingQuantity() { return remainingQuantity; }
+        public BigDecimal getCostPerShare() { return costPerShare; }
+        public LocalDateTime getAcquiredAt() { return acquiredAt; }
+    }
 }
@@ -1,13 +1,17 @@
 package com.stocktrade.controller;
 
 import com.stocktrade.entity.User;
+import com.stocktrade.service.PasswordHashingService;
 import com.stocktrade.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/users")
@@ -16,8 +20,16 @@ public class UserController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+    
+    // The principal only carries id, username and role, so profile fields come from the database
     @GetMapping("/me")
-    public ResponseEntity<UserProfileResponse> getCurrentUser(@AuthenticationPrincipal User user) {
+    public ResponseEntity<UserProfileResponse> getCurrentUser(@AuthenticationPrincipal User currentUser) {
+        User user = userService.findById(currentUser.getId()).orElse(null);
+        if (user == null) {
+            return ResponseEntity.notFound().build();
+        }
         UserProfileResponse profile = new UserProfileResponse(
                 user.getId(),
                 user.getUsername(),
@@ -58,20 +70,28 @@ public class UserController {
         }
     }
     
+    // Checks the current password and hashes the new one, so it queues with logins on the hashing pool
     @PutMapping("/me/password")
-    public ResponseEntity<?> changePassword(@AuthenticationPrincipal User currentUser,
-                                          @RequestBody ChangePasswordRequest request) {
-        try {
-            userService.changePassword(
-                    currentUser.getId(),
-                    request.getCurrentPassword(),
-                    request.getNewPassword()
-            );
-            return ResponseEntity.ok(new SuccessResponse("Password changed successfully"));
-        } catch (Exception e) {
+    public CompletableFuture<ResponseEntity<?>> changePassword(@AuthenticationPrincipal User currentUser,
+                                                               @RequestBody ChangePasswordRequest request) {
+        Long userId = currentUser.getId();
+        return passwordHashingService.submit(() -> userService.changePassword(
+                userId,
+                request.getCurrentPassword(),
+                request.getNewPassword()
+        )).<ResponseEntity<?>>handle((user, error) -> {
+            if (error == null) {
+                return ResponseEntity.ok(new SuccessResponse("Password changed successfully"));
+            }
+            if (PasswordHashingService.isRejection(error)) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body(new ErrorResponse("Too many password requests, please retry shortly"));
+            }
+            Throwable cause = error.getCause() != null ? error.getCause() : error;
             return ResponseEntity.badRequest()
-                    .body(new ErrorResponse("Password change failed: " + e.getMessage()));
-        }
+                    .body(new ErrorResponse("Password change failed: " + cause.getMessage()));
+        });
     }
     
     @PostMapping("/me/cash/add")
@@ -88,7 +108,9 @@ public class UserController {
     
     @GetMapping("/me/cash")
     public ResponseEntity<CashBalanceResponse> getCashBalance(@AuthenticationPrincipal User currentUser) {
-        return ResponseEntity.ok(new CashBalanceResponse(currentUser.getCashBalance()));
+        return userService.findById(currentUser.getId())
+                .map(user -> ResponseEntity.ok(new CashBalanceResponse(user.getCashBalance())))
+                .orElse(ResponseEntity.notFound().build());
     }
     
     @PutMapping("/me/cash")
@@ -103,6 +125,19 @@ public class UserController {
         }
     }
     
+    @PutMapping("/me/cost-basis-method")
+    public ResponseEntity<?> updateCostBasisMethod(@AuthenticationPrincipal User currentUser,
+                                                 @RequestBody CostBasisMethodRequest request) {
+        try {
+            User updatedUser = userService.updateCostBasisMethod(currentUser.getId(), request.getMethod());
+            return ResponseEntity.ok(new SuccessResponse(
+                    "Cost basis method set to " + updatedUser.getCostBasisMethod()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Cost basis method update failed: " + e.getMessage()));
+        }
+    }
+    
     public static class UserProfileResponse {
         private Long id;
         private String username;
@@ -179,6 +214,13 @@ public class UserController {
         public void setAmount(BigDecimal amount) { this.amount = amount; }
     }
     
+    public static class CostBasisMethodRequest {
+        private User.CostBasisMethod method;
+        
+        public User.CostBasisMethod getMethod() { return method; }
+        public void setMethod(User.CostBasisMethod method) { this.method = method; }
+    }
+    
     public static class CashBalanceResponse {
         private BigDecimal cashBalance;
         
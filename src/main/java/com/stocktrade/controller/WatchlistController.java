@@ -0,0 +1,57 @@
+package com.stocktrade.controller;
+
+import com.stocktrade.entity.User;
+import com.stocktrade.service.WatchlistService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/stocks/watchlist")
+public class WatchlistController {
+    
+    @Autowired
+    private WatchlistService watchlistService;
+    
+    @GetMapping
+    public ResponseEntity<WatchlistService.WatchlistChanges> getWatchlist(@AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(watchlistService.getChanges(user.getId(), null));
+    }
+    
+    // Quotes changed since the version of the client's last response; full when that version is too old
+    @GetMapping("/changes")
+    public ResponseEntity<WatchlistService.WatchlistChanges> getChanges(@AuthenticationPrincipal User user,
+                                                                        @RequestParam(required = false) Long since) {
+        return ResponseEntity.ok(watchlistService.getChanges(user.getId(), since));
+    }
+    
+    // Server-sent "changes" events with the version as event id; EventSource reconnects resume from Last-Event-ID
+    @GetMapping("/stream")
+    public SseEmitter streamChanges(@AuthenticationPrincipal User user,
+                                    @RequestParam(required = false) Long since,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return watchlistService.subscribe(user.getId(), lastEventId != null ? lastEventId : since);
+    }
+    
+    @PutMapping("/{symbol}")
+    public ResponseEntity<WatchlistService.WatchlistChanges> addSymbol(@AuthenticationPrincipal User user,
+                                                                       @PathVariable String symbol) {
+        try {
+            return ResponseEntity.ok(watchlistService.addSymbol(user.getId(), symbol.toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+    
+    @DeleteMapping("/{symbol}")
+    public ResponseEntity<Void> removeSymbol(@AuthenticationPrincipal User user, @PathVariable String symbol) {
+        if (!watchlistService.removeSymbol(user.getId(), symbol.toUpperCase())) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,80 @@
+package com.stocktrade.entity;
+
+import javax.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// A closed OHLCV bar; rows are only ever inserted by CandleService once the bar's interval has ended
+@Entity
+@Table(name = "candles", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"stock_id", "interval_code", "open_time"})
+})
+public class Candle {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stock_id", nullable = false)
+    private Stock stock;
+    
+    @Column(name = "interval_code", nullable = false, length = 3)
+    private String intervalCode;
+    
+    @Column(name = "open_time", nullable = false)
+    private LocalDateTime openTime;
+    
+    @Column(name = "open_price", nullable = false, precision = 19, scale = 2)
+    private BigDecimal openPrice;
+    
+    @Column(name = "high_price", nullable = false, precision = 19, scale = 2)
+    private BigDecimal highPrice;
+    
+    @Column(name = "low_price", nullable = false, precision = 19, scale = 2)
+    private BigDecimal lowPrice;
+    
+    @Column(name = "close_price", nullable = false, precision = 19, scale = 2)
+    private BigDecimal closePrice;
+    
+    @Column(name = "volume", nullable = false)
+    private Long volume;
+    
+    @Column(name = "trade_count", nullable = false)
+    private Integer tradeCount;
+    
+    // Constructors
+    public Candle() {}
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Stock getStock() { return stock; }
+    public void setStock(Stock stock) { this.stock = stock; }
+    
+    public String getIntervalCode() { return intervalCode; }
+    public void setIntervalCode(String intervalCode) { this.intervalCode = intervalCode; }
+    
+    public LocalDateTime getOpenTime() { return openTime; }
+    public void setOpenTime(LocalDateTime openTime) { this.openTime = openTime; }
+    
+    public BigDecimal getOpenPrice() { return openPrice; }
+    public void setOpenPrice(BigDecimal openPrice) { this.openPrice = openPrice; }
+    
+    public BigDecimal getHighPrice() { return highPrice; }
+    public void setHighPrice(BigDecimal highPrice) { this.highPrice = highPrice; }
+    
+    public BigDecimal getLowPrice() { return lowPrice; }
+    public void setLowPrice(BigDecimal lowPrice) { this.lowPrice = lowPrice; }
+    
+    public BigDecimal getClosePrice() { return closePrice; }
+    public void setClosePrice(BigDecimal closePrice) { this.closePrice = closePrice; }
+    
+    public Long getVolume() { return volume; }
+    public void setVolume(Long volume) { this.volume = volume; }
+    
+    public Integer getTradeCount() { return tradeCount; }
+    public void setTradeCount(Integer tradeCount) { this.tradeCount = tradeCount; }
+}
@@ -0,0 +1,43 @@
+package com.stocktrade.entity;
+
+import javax.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "outbox_consumer_offsets")
+public class OutboxConsumerOffset {
+    
+    @Id
+    @Column(name = "consumer_name", length = 100)
+    private String consumerName;
+    
+    @Column(name = "last_event_id", nullable = false)
+    private Long lastEventId = 0L;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+    
+    // Constructors
+    public OutboxConsumerOffset() {}
+    
+    public OutboxConsumerOffset(String consumerName) {
+        this.consumerName = consumerName;
+    }
+    
+    // Getters and Setters
+    public String getConsumerName() { return consumerName; }
+    public void setConsumerName(String consumerName) { this.consumerName = consumerName; }
+    
+    public Long getLastEventId() { return lastEventId; }
+    public void setLastEventId(Long lastEventId) { this.lastEventId = lastEventId; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,68 @@
+package com.stocktrade.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "price_history", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"stock_id", "trade_date"})
+})
+public class PriceHistory {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stock_id", nullable = false)
+    @NotNull(message = "Stock is required")
+    private Stock stock;
+    
+    @NotNull(message = "Trade date is required")
+    @Column(name = "trade_date", nullable = false)
+    private LocalDate tradeDate;
+    
+    @NotNull(message = "Close price is required")
+    @Positive(message = "Close price must be positive")
+    @Column(name = "close_price", nullable = false, precision = 19, scale = 2)
+    private BigDecimal closePrice;
+    
+    @Column(name = "recorded_at", nullable = false)
+    private LocalDateTime recordedAt;
+    
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        recordedAt = LocalDateTime.now();
+    }
+    
+    // Constructors
+    public PriceHistory() {}
+    
+    public PriceHistory(Stock stock, LocalDate tradeDate, BigDecimal closePrice) {
+        this.stock = stock;
+        this.tradeDate = tradeDate;
+        this.closePrice = closePrice;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Stock getStock() { return stock; }
+    public void setStock(Stock stock) { this.stock = stock; }
+    
+    public LocalDate getTradeDate() { return tradeDate; }
+    public void setTradeDate(LocalDate tradeDate) { this.tradeDate = tradeDate; }
+    
+    public BigDecimal getClosePrice() { return closePrice; }
+    public void setClosePrice(BigDecimal closePrice) { this.closePrice = closePrice; }
+    
+    public LocalDateTime getRecordedAt() { return recordedAt; }
+    public void setRecordedAt(LocalDateTime recordedAt) { this.recordedAt = recordedAt; }
+}
@@ -0,0 +1,99 @@
+package com.stocktrade.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "realized_gains", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"user_id", "stock_id"})
+})
+public class RealizedGain {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @NotNull(message = "User is required")
+    private User user;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stock_id", nullable = false)
+    @NotNull(message = "Stock is required")
+    private Stock stock;
+    
+    @Column(name = "shares_sold", nullable = false)
+    private Long sharesSold = 0L;
+    
+    @Column(name = "proceeds", nullable = false, precision = 19, scale = 2)
+    private BigDecimal proceeds = BigDecimal.ZERO;
+    
+    @Column(name = "cost_basis", nullable = false, precision = 19, scale = 2)
+    private BigDecimal costBasis = BigDecimal.ZERO;
+    
+    @Column(name = "realized_gain_loss", nullable = false, precision = 19, scale = 2)
+    private BigDecimal realizedGainLoss = BigDecimal.ZERO;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+    
+    // Constructors
+    public RealizedGain() {}
+    
+    public RealizedGain(User user, Stock stock) {
+        this.user = user;
+        this.stock = stock;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+    
+    public Stock getStock() { return stock; }
+    public void setStock(Stock stock) { this.stock = stock; }
+    
+    public Long getSharesSold() { return sharesSold; }
+    public void setSharesSold(Long sharesSold) { this.sharesSold = sharesSold; }
+    
+    public BigDecimal getProceeds() { return proceeds; }
+    public void setProceeds(BigDecimal proceeds) { this.proceeds = proceeds; }
+    
+    public BigDecimal getCostBasis() { return costBasis; }
+    public void setCostBasis(BigDecimal costBasis) { this.costBasis = costBasis; }
+    
+    public BigDecimal getRealizedGainLoss() { return realizedGainLoss; }
+    public void setRealizedGainLoss(BigDecimal realizedGainLoss) { this.realizedGainLoss = realizedGainLoss; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    // Business logic methods
+    public void recordSale(int quantity, BigDecimal saleProceeds, BigDecimal saleCostBasis) {
+        this.sharesSold += quantity;
+        this.proceeds = this.proceeds.add(saleProceeds);
+        this.costBasis = this.costBasis.add(saleCostBasis);
+        this.realizedGainLoss = this.proceeds.subtract(this.costBasis);
+    }
+    
+    public BigDecimal getRealizedGainLossPercentage() {
+        if (costBasis.compareTo(BigDecimal.ZERO) > 0) {
+            return realizedGainLoss
+                    .divide(costBasis, 4, java.math.RoundingMode.HALF_UP)
+                    .multiply(BigDecimal.valueOf(100));
+        }
+        return BigDecimal.ZERO;
+    }
+}
@@ -1,5 +1,7 @@
 package com.stocktrade.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
@@ -12,6 +14,7 @@ import java.util.Set;
 
 @Entity
 @Table(name = "stocks")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Stock {
     
     @Id
@@ -52,6 +55,13 @@ public class Stock {
     @Column(name = "dividend_yield", precision = 5, scale = 2)
     private BigDecimal dividendYield;
     
+    @Column(name = "sector", length = 100)
+    private String sector;
+    
+    // Last company overview request, successful or not; ETFs never report a sector, so this is what stops retries
+    @Column(name = "overview_fetched_at")
+    private LocalDateTime overviewFetchedAt;
+    
     @Column(name = "fifty_two_week_high", precision = 19, scale = 2)
     private BigDecimal fiftyTwoWeekHigh;
     
@@ -67,9 +77,12 @@ public class Stock {
     @Column(name = "is_active", nullable = false)
     private Boolean isActive = true;
     
+    // Serialized from the owning side only; the back-reference would recurse through every holding
+    @JsonIgnore
     @OneToMany(mappedBy = "stock", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<Portfolio> portfolios = new HashSet<>();
     
+    @JsonIgnore
     @OneToMany(mappedBy = "stock", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<Trade> trades = new HashSet<>();
     
@@ -127,6 +140,12 @@ public class Stock {
     public BigDecimal getDividendYield() { return dividendYield; }
     public void setDividendYield(BigDecimal dividendYield) { this.dividendYield = dividendYield; }
     
+    public String getSector() { return sector; }
+    public void setSector(String sector) { this.sector = sector; }
+    
+    public LocalDateTime getOverviewFetchedAt() { return overviewFetchedAt; }
+    public void setOverviewFetchedAt(LocalDateTime overviewFetchedAt) { this.overviewFetchedAt = overviewFetchedAt; }
+    
     public BigDecimal getFiftyTwoWeekHigh() { return fiftyTwoWeekHigh; }
     public void setFiftyTwoWeekHigh(BigDecimal fiftyTwoWeekHigh) { this.fiftyTwoWeekHigh = fiftyTwoWeekHigh; }
     
@@ -0,0 +1,107 @@
+package com.stocktrade.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "tax_lots")
+public class TaxLot {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @NotNull(message = "User is required")
+    private User user;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stock_id", nullable = false)
+    @NotNull(message = "Stock is required")
+    private Stock stock;
+    
+    @NotNull(message = "Original quantity is required")
+    @Positive(message = "Original quantity must be positive")
+    @Column(name = "original_quantity", nullable = false)
+    private Integer originalQuantity;
+    
+    @NotNull(message = "Remaining quantity is required")
+    @PositiveOrZero(message = "Remaining quantity must be positive or zero")
+    @Column(name = "remaining_quantity", nullable = false)
+    private Integer remainingQuantity;
+    
+    @NotNull(message = "Cost per share is required")
+    @Positive(message = "Cost per share must be positive")
+    @Column(name = "cost_per_share", nullable = false, precision = 19, scale = 2)
+    private BigDecimal costPerShare;
+    
+    @Column(name = "acquired_at", nullable = false)
+    private LocalDateTime acquiredAt;
+    
+    @Column(name = "closed_at")
+    private LocalDateTime closedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        if (acquiredAt == null) {
+            acquiredAt = LocalDateTime.now();
+        }
+    }
+    
+    // Constructors
+    public TaxLot() {}
+    
+    public TaxLot(User user, Stock stock, Integer quantity, BigDecimal costPerShare, LocalDateTime acquiredAt) {
+        this.user = user;
+        this.stock = stock;
+        this.originalQuantity = quantity;
+        this.remainingQuantity = quantity;
+        this.costPerShare = costPerShare;
+        this.acquiredAt = acquiredAt;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+    
+    public Stock getStock() { return stock; }
+    public void setStock(Stock stock) { this.stock = stock; }
+    
+    public Integer getOriginalQuantity() { return originalQuantity; }
+    public void setOriginalQuantity(Integer originalQuantity) { this.originalQuantity = originalQuantity; }
+    
+    public Integer getRemainingQuantity() { return remainingQuantity; }
+    public void setRemainingQuantity(Integer remainingQuantity) { this.remainingQuantity = remainingQuantity; }
+    
+    public BigDecimal getCostPerShare() { return costPerShare; }
+    public void setCostPerShare(BigDecimal costPerShare) { this.costPerShare = costPerShare; }
+    
+    public LocalDateTime getAcquiredAt() { return acquiredAt; }
+    public void setAcquiredAt(LocalDateTime acquiredAt) { this.acquiredAt = acquiredAt; }
+    
+    public LocalDateTime getClosedAt() { return closedAt; }
+    public void setClosedAt(LocalDateTime closedAt) { this.closedAt = closedAt; }
+    
+    // Business logic methods
+    public int consume(int requested) {
+        int taken = Math.min(requested, remainingQuantity);
+        remainingQuantity -= taken;
+        if (remainingQuantity == 0) {
+            closedAt = LocalDateTime.now();
+        }
+        return taken;
+    }
+    
+    public boolean isOpen() {
+        return remainingQuantity != null && remainingQuantity > 0;
+    }
+}
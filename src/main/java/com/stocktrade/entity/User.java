@@ -1,5 +1,7 @@
 package com.stocktrade.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import javax.persistence.*;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
@@ -15,6 +17,7 @@ import java.util.*;
 
 @Entity
 @Table(name = "users")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class User implements UserDetails {
     
     @Id
@@ -30,6 +33,7 @@ public class User implements UserDetails {
     @Column(unique = true, nullable = false)
     private String email;
     
+    @JsonIgnore
     @NotBlank(message = "Password is required")
     @Column(nullable = false)
     private String password;
@@ -60,9 +64,22 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private Role role = Role.USER;
     
+    @Enumerated(EnumType.STRING)
+    @Column(name = "cost_basis_method", nullable = false)
+    private CostBasisMethod costBasisMethod = CostBasisMethod.FIFO;
+    
+    @Column(name = "realized_gain_loss", nullable = false, precision = 19, scale = 2)
+    private BigDecimal realizedGainLoss = BigDecimal.ZERO;
+    
+    @Column(name = "realized_cost_basis", nullable = false, precision = 19, scale = 2)
+    private BigDecimal realizedCostBasis = BigDecimal.ZERO;
+    
+    // Serialized from the owning side only; the back-reference would recurse through every holding
+    @JsonIgnore
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<Portfolio> portfolios = new HashSet<>();
     
+    @JsonIgnore
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<Trade> trades = new HashSet<>();
     
@@ -70,6 +87,10 @@ public class User implements UserDetails {
         USER, ADMIN
     }
     
+    public enum CostBasisMethod {
+        FIFO, LIFO, HIFO
+    }
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -160,6 +181,15 @@ public class User implements UserDetails {
     public Role getRole() { return role; }
     public void setRole(Role role) { this.role = role; }
     
+    public CostBasisMethod getCostBasisMethod() { return costBasisMethod; }
+    public void setCostBasisMethod(CostBasisMethod costBasisMethod) { this.costBasisMethod = costBasisMethod; }
+    
+    public BigDecimal getRealizedGainLoss() { return realizedGainLoss; }
+    public void setRealizedGainLoss(BigDecimal realizedGainLoss) { this.realizedGainLoss = realizedGainLoss; }
+    
+    public BigDecimal getRealizedCostBasis() { return realizedCostBasis; }
+    public void setRealizedCostBasis(BigDecimal realizedCostBasis) { this.realizedCostBasis = realizedCostBasis; }
+    
     public Set<Portfolio> getPortfolios() { return portfolios; }
     public void setPortfolios(Set<Portfolio> portfolios) { this.portfolios = portfolios; }
     
@@ -179,6 +209,11 @@ public class User implements UserDetails {
         this.cashBalance = this.cashBalance.subtract(amount);
     }
     
+    public void recordRealizedSale(BigDecimal gainLoss, BigDecimal costBasis) {
+        this.realizedGainLoss = this.realizedGainLoss.add(gainLoss);
+        this.realizedCostBasis = this.realizedCostBasis.add(costBasis);
+    }
+    
     public boolean hasSufficientCash(BigDecimal amount) {
         return this.cashBalance.compareTo(amount) >= 0;
     }
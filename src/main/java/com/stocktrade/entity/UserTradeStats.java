@@ -0,0 +1,85 @@
+package com.stocktrade.entity;
+
+import javax.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+@Entity
+@Table(name = "user_trade_stats")
+public class UserTradeStats {
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(name = "buy_total", nullable = false, precision = 19, scale = 2)
+    private BigDecimal buyTotal = BigDecimal.ZERO;
+    
+    @Column(name = "sell_total", nullable = false, precision = 19, scale = 2)
+    private BigDecimal sellTotal = BigDecimal.ZERO;
+    
+    @Column(name = "trade_count", nullable = false)
+    private Long tradeCount = 0L;
+    
+    @Column(name = "distinct_symbols", nullable = false)
+    private Integer distinctSymbols = 0;
+    
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "user_traded_symbols", joinColumns = @JoinColumn(name = "user_id"))
+    @Column(name = "symbol", length = 10)
+    private Set<String> tradedSymbols = new HashSet<>();
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+    
+    // Constructors
+    public UserTradeStats() {}
+    
+    public UserTradeStats(Long userId) {
+        this.userId = userId;
+    }
+    
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public BigDecimal getBuyTotal() { return buyTotal; }
+    public void setBuyTotal(BigDecimal buyTotal) { this.buyTotal = buyTotal; }
+    
+    public BigDecimal getSellTotal() { return sellTotal; }
+    public void setSellTotal(BigDecimal sellTotal) { this.sellTotal = sellTotal; }
+    
+    public Long getTradeCount() { return tradeCount; }
+    public void setTradeCount(Long tradeCount) { this.tradeCount = tradeCount; }
+    
+    public Integer getDistinctSymbols() { return distinctSymbols; }
+    public void setDistinctSymbols(Integer distinctSymbols) { this.distinctSymbols = distinctSymbols; }
+    
+    public Set<String> getTradedSymbols() { return tradedSymbols; }
+    public void setTradedSymbols(Set<String> tradedSymbols) { this.tradedSymbols = tradedSymbols; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    // Business logic methods
+    public void recordTrade(Trade.TradeType tradeType, BigDecimal totalAmount, String symbol) {
+        if (tradeType == Trade.TradeType.BUY) {
+            this.buyTotal = this.buyTotal.add(totalAmount);
+        } else {
+            this.sellTotal = this.sellTotal.add(totalAmount);
+        }
+        this.tradeCount++;
+        if (this.tradedSymbols.add(symbol)) {
+            this.distinctSymbols = this.tradedSymbols.size();
+        }
+    }
+}
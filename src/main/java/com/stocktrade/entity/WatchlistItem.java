@@ -0,0 +1,58 @@
+package com.stocktrade.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "watchlist_items", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"user_id", "stock_id"})
+})
+public class WatchlistItem {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @NotNull(message = "User is required")
+    private User user;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stock_id", nullable = false)
+    @NotNull(message = "Stock is required")
+    private Stock stock;
+    
+    @Column(name = "added_at", nullable = false)
+    private LocalDateTime addedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        if (addedAt == null) {
+            addedAt = LocalDateTime.now();
+        }
+    }
+    
+    // Constructors
+    public WatchlistItem() {}
+    
+    public WatchlistItem(User user, Stock stock) {
+        this.user = user;
+        this.stock = stock;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+    
+    public Stock getStock() { return stock; }
+    public void setStock(Stock stock) { this.stock = stock; }
+    
+    public LocalDateTime getAddedAt() { return addedAt; }
+    public void setAddedAt(LocalDateTime addedAt) { this.addedAt = addedAt; }
+}
@@ -0,0 +1,13 @@
+package com.stocktrade.event;
+
+// Published when an account's cash or status changes outside of a trade
+public class AccountUpdatedEvent {
+    
+    private final Long userId;
+    
+    public AccountUpdatedEvent(Long userId) {
+        this.userId = userId;
+    }
+    
+    public Long getUserId() { return userId; }
+}
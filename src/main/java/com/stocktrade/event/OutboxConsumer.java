@@ -0,0 +1,10 @@
+package com.stocktrade.event;
+
+// Receives outbox messages in id order, so every account's events arrive in the order they were committed.
+// Delivery is at-least-once: a message may be seen again after a failure or restart, so handlers must be idempotent.
+// Throwing stops delivery to this consumer; the same message is retried on the next relay pass.
+@FunctionalInterface
+public interface OutboxConsumer {
+    
+    void handle(OutboxMessage message) throws Exception;
+}
@@ -0,0 +1,29 @@
+package com.stocktrade.event;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.LocalDateTime;
+
+// One relayed outbox row; the offset is the outbox id and only ever increases
+public class OutboxMessage {
+    
+    private final long offset;
+    private final Long accountId;
+    private final String eventType;
+    private final LocalDateTime createdAt;
+    private final JsonNode payload;
+    
+    public OutboxMessage(long offset, Long accountId, String eventType, LocalDateTime createdAt, JsonNode payload) {
+        this.offset = offset;
+        this.accountId = accountId;
+        this.eventType = eventType;
+        this.createdAt = createdAt;
+        this.payload = payload;
+    }
+    
+    public long getOffset() { return offset; }
+    public Long getAccountId() { return accountId; }
+    public String getEventType() { return eventType; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public JsonNode getPayload() { return payload; }
+}
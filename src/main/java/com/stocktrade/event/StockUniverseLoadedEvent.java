@@ -0,0 +1,20 @@
+package com.stocktrade.event;
+
+// Published after a bulk universe import commits. The import writes rows directly and sends no
+// StockUpdatedEvent per stock, so views built from stock rows rebuild once on this instead.
+public class StockUniverseLoadedEvent {
+    
+    private final int inserted;
+    private final int updated;
+    private final int deactivated;
+    
+    public StockUniverseLoadedEvent(int inserted, int updated, int deactivated) {
+        this.inserted = inserted;
+        this.updated = updated;
+        this.deactivated = deactivated;
+    }
+    
+    public int getInserted() { return inserted; }
+    public int getUpdated() { return updated; }
+    public int getDeactivated() { return deactivated; }
+}
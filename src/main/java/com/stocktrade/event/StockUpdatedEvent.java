@@ -0,0 +1,97 @@
+package com.stocktrade.event;
+
+import com.stocktrade.entity.Stock;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Immutable copy of a stock row as saved, so listeners never touch a managed entity after commit
+public class StockUpdatedEvent {
+    
+    private final Long stockId;
+    private final String symbol;
+    private final String companyName;
+    private final BigDecimal currentPrice;
+    private final BigDecimal previousClose;
+    private final BigDecimal dayHigh;
+    private final BigDecimal dayLow;
+    private final Long volume;
+    private final Long marketCap;
+    private final BigDecimal peRatio;
+    private final BigDecimal dividendYield;
+    private final String sector;
+    private final BigDecimal fiftyTwoWeekHigh;
+    private final BigDecimal fiftyTwoWeekLow;
+    private final boolean active;
+    private final LocalDateTime lastUpdated;
+    private final LocalDateTime createdAt;
+    
+    public StockUpdatedEvent(Stock stock) {
+        this.stockId = stock.getId();
+        this.symbol = stock.getSymbol();
+        this.companyName = stock.getCompanyName();
+        this.currentPrice = stock.getCurrentPrice();
+        this.previousClose = stock.getPreviousClose();
+        this.dayHigh = stock.getDayHigh();
+        this.dayLow = stock.getDayLow();
+        this.volume = stock.getVolume();
+        this.marketCap = stock.getMarketCap();
+        this.peRatio = stock.getPeRatio();
+        this.dividendYield = stock.getDividendYield();
+        this.sector = stock.getSector();
+        this.fiftyTwoWeekHigh = stock.getFiftyTwoWeekHigh();
+        this.fiftyTwoWeekLow = stock.getFiftyTwoWeekLow();
+        this.active = Boolean.TRUE.equals(stock.getIsActive());
+        this.lastUpdated = stock.getLastUpdated();
+        this.createdAt = stock.getCreatedAt();
+    }
+    
+    // A detached Stock with these values. Views hand snapshots to requests and never mutate them once
+    // published, so they can be serialized without copying.
+    public Stock toSnapshot() {
+        Stock stock = new Stock();
+        stock.setId(stockId);
+        stock.setSymbol(symbol);
+        stock.setCompanyName(companyName);
+        stock.setCurrentPrice(currentPrice);
+        stock.setPreviousClose(previousClose);
+        stock.setDayHigh(dayHigh);
+        stock.setDayLow(dayLow);
+        stock.setVolume(volume);
+        stock.setMarketCap(marketCap);
+        stock.setPeRatio(peRatio);
+        stock.setDividendYield(dividendYield);
+        stock.setSector(sector);
+        stock.setFiftyTwoWeekHigh(fiftyTwoWeekHigh);
+        stock.setFiftyTwoWeekLow(fiftyTwoWeekLow);
+        stock.setLastUpdated(lastUpdated);
+        stock.setCreatedAt(createdAt);
+        stock.setIsActive(active);
+        return stock;
+    }
+    
+    // AFTER_COMMIT listeners run in the order commits finish, which is not always the order the rows were
+    // written, so views drop an event that is older than the state they already hold
+    public boolean isOlderThan(LocalDateTime applied) {
+        return applied != null && lastUpdated != null && lastUpdated.isBefore(applied);
+    }
+    
+    // Getters
+    public Long getStockId() { return stockId; }
+    public String getSymbol() { return symbol; }
+    public String getCompanyName() { return companyName; }
+    public BigDecimal getCurrentPrice() { return currentPrice; }
+    public BigDecimal getPreviousClose() { return previousClose; }
+    public BigDecimal getDayHigh() { return dayHigh; }
+    public BigDecimal getDayLow() { return dayLow; }
+    public Long getVolume() { return volume; }
+    public Long getMarketCap() { return marketCap; }
+    public BigDecimal getPeRatio() { return peRatio; }
+    public BigDecimal getDividendYield() { return dividendYield; }
+    public String getSector() { return sector; }
+    public BigDecimal getFiftyTwoWeekHigh() { return fiftyTwoWeekHigh; }
+    public BigDecimal getFiftyTwoWeekLow() { return fiftyTwoWeekLow; }
+    public boolean isActive() { return active; }
+    public LocalDateTime getLastUpdated() { return lastUpdated; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
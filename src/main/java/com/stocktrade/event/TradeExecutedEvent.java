@@ -0,0 +1,42 @@
+package com.stocktrade.event;
+
+import com.stocktrade.entity.Trade;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class TradeExecutedEvent {
+    
+    private final Long tradeId;
+    private final Long userId;
+    private final Long stockId;
+    private final String symbol;
+    private final Trade.TradeType tradeType;
+    private final Integer quantity;
+    private final BigDecimal price;
+    private final BigDecimal totalAmount;
+    private final LocalDateTime executedAt;
+    
+    public TradeExecutedEvent(Trade trade) {
+        this.tradeId = trade.getId();
+        this.userId = trade.getUser().getId();
+        this.stockId = trade.getStock().getId();
+        this.symbol = trade.getStock().getSymbol();
+        this.tradeType = trade.getTradeType();
+        this.quantity = trade.getQuantity();
+        this.price = trade.getPrice();
+        this.totalAmount = trade.getTotalAmount();
+        this.executedAt = trade.getExecutedAt();
+    }
+    
+    // Getters
+    public Long getTradeId() { return tradeId; }
+    public Long getUserId() { return userId; }
+    public Long getStockId() { return stockId; }
+    public String getSymbol() { return symbol; }
+    public Trade.TradeType getTradeType() { return tradeType; }
+    public Integer getQuantity() { return quantity; }
+    public BigDecimal getPrice() { return price; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public LocalDateTime getExecutedAt() { return executedAt; }
+}
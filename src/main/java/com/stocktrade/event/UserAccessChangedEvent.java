@@ -0,0 +1,13 @@
+package com.stocktrade.event;
+
+// Published when a user's password, role, active flag or username changes, so cached principals are dropped
+public class UserAccessChangedEvent {
+    
+    private final String username;
+    
+    public UserAccessChangedEvent(String username) {
+        this.username = username;
+    }
+    
+    public String getUsername() { return username; }
+}
@@ -0,0 +1,24 @@
+package com.stocktrade.repository;
+
+import com.stocktrade.entity.Candle;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CandleRepository extends JpaRepository<Candle, Long> {
+    
+    @Query("SELECT c FROM Candle c WHERE c.stock.symbol = :symbol AND c.intervalCode = :intervalCode " +
+           "AND c.openTime BETWEEN :fromTime AND :toTime ORDER BY c.openTime ASC")
+    List<Candle> findCandles(@Param("symbol") String symbol,
+                             @Param("intervalCode") String intervalCode,
+                             @Param("fromTime") LocalDateTime fromTime,
+                             @Param("toTime") LocalDateTime toTime);
+    
+    @Query("SELECT c FROM Candle c JOIN FETCH c.stock WHERE c.openTime >= :since ORDER BY c.openTime ASC")
+    List<Candle> findAllSince(@Param("since") LocalDateTime since);
+}
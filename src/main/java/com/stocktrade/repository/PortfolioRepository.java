@@ -63,6 +63,11 @@ public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
            "((p.stock.currentPrice * p.quantity) - (p.averageCost * p.quantity)) < 0")
     List<Portfolio> findLosingPositions(@Param("userId") Long userId);
     
+    // Returns [userId, symbol, quantity, averageCost, currentPrice] rows for every open position
+    @Query("SELECT p.user.id, p.stock.symbol, p.quantity, p.averageCost, p.stock.currentPrice " +
+           "FROM Portfolio p WHERE p.quantity > 0")
+    List<Object[]> findAllOpenPositionValues();
+    
     boolean existsByUserAndStock(User user, Stock stock);
     
     boolean existsByUserIdAndStockId(Long userId, Long stockId);
@@ -0,0 +1,21 @@
+package com.stocktrade.repository;
+
+import com.stocktrade.entity.PriceHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface PriceHistoryRepository extends JpaRepository<PriceHistory, Long> {
+    
+    List<PriceHistory> findByStockSymbolAndTradeDateGreaterThanEqualOrderByTradeDateAsc(String symbol, LocalDate fromDate);
+    
+    // Returns [symbol, tradeDate, closePrice] rows so risk calculations avoid hydrating entities
+    @Query("SELECT h.stock.symbol, h.tradeDate, h.closePrice FROM PriceHistory h " +
+           "WHERE h.tradeDate >= :fromDate AND h.stock.isActive = true ORDER BY h.tradeDate ASC")
+    List<Object[]> findActiveClosingPricesSince(@Param("fromDate") LocalDate fromDate);
+}
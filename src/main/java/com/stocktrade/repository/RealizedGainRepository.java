@@ -0,0 +1,21 @@
+package com.stocktrade.repository;
+
+import com.stocktrade.entity.RealizedGain;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RealizedGainRepository extends JpaRepository<RealizedGain, Long> {
+    
+    Optional<RealizedGain> findByUserIdAndStockId(Long userId, Long stockId);
+    
+    Optional<RealizedGain> findByUserIdAndStockSymbol(Long userId, String stockSymbol);
+    
+    @Query("SELECT r FROM RealizedGain r JOIN FETCH r.stock WHERE r.user.id = :userId ORDER BY r.stock.symbol ASC")
+    List<RealizedGain> findByUserIdOrderBySymbol(@Param("userId") Long userId);
+}
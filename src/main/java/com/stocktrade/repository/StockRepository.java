@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +22,8 @@ public interface StockRepository extends JpaRepository<Stock, Long> {
     
     List<Stock> findByIsActiveTrueOrderBySymbolAsc();
     
+    List<Stock> findBySymbolIn(Collection<String> symbols);
+    
     @Query("SELECT s FROM Stock s WHERE s.isActive = true AND " +
            "(LOWER(s.symbol) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(s.companyName) LIKE LOWER(CONCAT('%', :search, '%')))")
@@ -0,0 +1,29 @@
+package com.stocktrade.repository;
+
+import com.stocktrade.entity.TaxLot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TaxLotRepository extends JpaRepository<TaxLot, Long> {
+    
+    @Query("SELECT l FROM TaxLot l WHERE l.user.id = :userId AND l.stock.id = :stockId AND l.remainingQuantity > 0 " +
+           "ORDER BY l.acquiredAt ASC, l.id ASC")
+    List<TaxLot> findOpenLotsOldestFirst(@Param("userId") Long userId, @Param("stockId") Long stockId);
+    
+    @Query("SELECT l FROM TaxLot l WHERE l.user.id = :userId AND l.stock.id = :stockId AND l.remainingQuantity > 0 " +
+           "ORDER BY l.acquiredAt DESC, l.id DESC")
+    List<TaxLot> findOpenLotsNewestFirst(@Param("userId") Long userId, @Param("stockId") Long stockId);
+    
+    @Query("SELECT l FROM TaxLot l WHERE l.user.id = :userId AND l.stock.id = :stockId AND l.remainingQuantity > 0 " +
+           "ORDER BY l.costPerShare DESC, l.acquiredAt ASC, l.id ASC")
+    List<TaxLot> findOpenLotsHighestCostFirst(@Param("userId") Long userId, @Param("stockId") Long stockId);
+    
+    @Query("SELECT l FROM TaxLot l WHERE l.user.id = :userId AND l.stock.symbol = :symbol AND l.remainingQuantity > 0 " +
+           "ORDER BY l.acquiredAt ASC, l.id ASC")
+    List<TaxLot> findOpenLotsBySymbol(@Param("userId") Long userId, @Param("symbol") String symbol);
+}
@@ -10,6 +10,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -40,6 +41,17 @@ public interface TradeRepository extends JpaRepository<Trade, Long> {
     
     List<Trade> findByUserIdAndStockSymbolOrderByExecutedAtDesc(Long userId, String stockSymbol);
     
+    // Keyset pages on (executed_at, id); List results skip the count query that Page would issue
+    @Query("SELECT t FROM Trade t JOIN FETCH t.stock WHERE t.user.id = :userId ORDER BY t.executedAt DESC, t.id DESC")
+    List<Trade> findFirstTradePage(@Param("userId") Long userId, Pageable pageable);
+    
+    @Query("SELECT t FROM Trade t JOIN FETCH t.stock WHERE t.user.id = :userId AND t.executedAt <= :executedAt " +
+           "AND (t.executedAt < :executedAt OR t.id < :id) ORDER BY t.executedAt DESC, t.id DESC")
+    List<Trade> findTradePageAfter(@Param("userId") Long userId,
+                                   @Param("executedAt") LocalDateTime executedAt,
+                                   @Param("id") Long id,
+                                   Pageable pageable);
+    
     @Query("SELECT t FROM Trade t WHERE t.user.id = :userId AND t.executedAt >= :fromDate")
     List<Trade> findUserTradesSince(@Param("userId") Long userId, @Param("fromDate") LocalDateTime fromDate);
     
@@ -54,6 +66,9 @@ public interface TradeRepository extends JpaRepository<Trade, Long> {
     @Query("SELECT SUM(t.totalAmount) FROM Trade t WHERE t.user.id = :userId AND t.tradeType = :tradeType AND t.tradeStatus = 'COMPLETED'")
     Double calculateTotalTradeAmount(@Param("userId") Long userId, @Param("tradeType") Trade.TradeType tradeType);
     
+    @Query("SELECT SUM(t.totalAmount) FROM Trade t WHERE t.user.id = :userId AND t.tradeType = :tradeType AND t.tradeStatus = 'COMPLETED'")
+    BigDecimal sumCompletedTradeAmount(@Param("userId") Long userId, @Param("tradeType") Trade.TradeType tradeType);
+    
     @Query("SELECT SUM(t.quantity) FROM Trade t WHERE t.user.id = :userId AND t.stock.symbol = :symbol AND t.tradeType = :tradeType AND t.tradeStatus = 'COMPLETED'")
     Integer calculateTotalQuantityTraded(@Param("userId") Long userId, 
                                         @Param("symbol") String symbol, 
@@ -74,6 +89,10 @@ public interface TradeRepository extends JpaRepository<Trade, Long> {
     @Query("SELECT SUM(t.quantity) FROM Trade t WHERE t.stock.symbol = :symbol AND t.executedAt >= :fromDate AND t.tradeStatus = 'COMPLETED'")
     Long calculateTotalVolume(@Param("symbol") String symbol, @Param("fromDate") LocalDateTime fromDate);
     
+    @Query("SELECT s.symbol, t.quantity, t.price, t.executedAt FROM Trade t JOIN t.stock s " +
+           "WHERE t.executedAt >= :fromDate AND t.tradeStatus = 'COMPLETED'")
+    List<Object[]> findCompletedTradeTicksSince(@Param("fromDate") LocalDateTime fromDate);
+    
     @Query("SELECT t FROM Trade t WHERE t.user.id = :userId AND t.tradeStatus = 'COMPLETED' ORDER BY t.executedAt DESC")
     List<Trade> findRecentCompletedTrades(@Param("userId") Long userId, Pageable pageable);
     
@@ -0,0 +1,19 @@
+package com.stocktrade.repository;
+
+import com.stocktrade.entity.UserTradeStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+@Repository
+public interface UserTradeStatsRepository extends JpaRepository<UserTradeStats, Long> {
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UserTradeStats s WHERE s.userId = :userId")
+    Optional<UserTradeStats> findByUserIdForUpdate(@Param("userId") Long userId);
+}
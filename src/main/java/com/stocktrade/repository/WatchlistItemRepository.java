@@ -0,0 +1,23 @@
+package com.stocktrade.repository;
+
+import com.stocktrade.entity.WatchlistItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface WatchlistItemRepository extends JpaRepository<WatchlistItem, Long> {
+    
+    @Query("SELECT w.stock.symbol FROM WatchlistItem w WHERE w.user.id = :userId")
+    List<String> findSymbolsByUserId(@Param("userId") Long userId);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM WatchlistItem w WHERE w.user.id = :userId AND w.stock.id = :stockId")
+    int deleteByUserIdAndStockId(@Param("userId") Long userId, @Param("stockId") Long stockId);
+}
@@ -1,5 +1,6 @@
 package com.stocktrade.security;
 
+import com.stocktrade.service.PasswordHashingService;
 import com.stocktrade.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -37,8 +38,8 @@ public class SecurityConfig {
     }
     
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashingService passwordHashingService) {
+        return passwordHashingService.timed(new BCryptPasswordEncoder());
     }
     
 
@@ -58,7 +59,9 @@ public class SecurityConfig {
             .authorizeRequests(authz -> authz
                 // Public endpoints
                 .antMatchers("/api/auth/**").permitAll()
-                .antMatchers("/api/stocks/search", "/api/stocks/popular", "/api/stocks/{symbol}/quote").permitAll()
+                .antMatchers("/api/stocks/search", "/api/stocks/popular", "/api/stocks/most-traded", "/api/stocks/{symbol}/quote",
+                             "/api/stocks/{symbol}/candles").permitAll()
+                .antMatchers("/api/leaderboard").permitAll()
                 .antMatchers("/h2-console/**").permitAll()
                 .antMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
                 .antMatchers("/actuator/health").permitAll()
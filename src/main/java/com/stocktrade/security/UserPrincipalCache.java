@@ -0,0 +1,100 @@
+package com.stocktrade.security;
+
+import com.stocktrade.entity.User;
+import com.stocktrade.event.UserAccessChangedEvent;
+import com.stocktrade.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Principals for authenticated requests, so a valid token costs no users query in the steady state. Entries
+// are trimmed, detached copies holding only what controllers read from the principal (id, username, role,
+// active flag); anything else is loaded by id where it is needed. They expire after a TTL, which also bounds
+// how long an edit made outside UserService goes unnoticed, and UserAccessChangedEvent drops them at once.
+@Component
+public class UserPrincipalCache {
+    
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+    private final int maxSize;
+    
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Bumped on every invalidation. A load that started before one is returned but not cached, so a row read
+    // just before a password change commits cannot outlive the change.
+    private final AtomicLong invalidations = new AtomicLong();
+    
+    @Autowired
+    public UserPrincipalCache(UserRepository userRepository,
+                              @Value("${security.principal-cache.ttl-seconds:60}") long ttlSeconds,
+                              @Value("${security.principal-cache.max-size:10000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxSize = maxSize;
+    }
+    
+    // Null for unknown usernames; those are not cached, so a user created later is found at once
+    public User get(String username) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(username);
+        if (entry != null && entry.expiresAt > now) {
+            return entry.principal;
+        }
+        
+        long generation = invalidations.get();
+        User user = userRepository.findByUsername(username).orElse(null);
+        if (user == null) {
+            entries.remove(username);
+            return null;
+        }
+        User principal = principalOf(user);
+        if (entries.size() >= maxSize) {
+            evict(now);
+        }
+        if (invalidations.get() == generation) {
+            entries.put(username, new Entry(principal, now + ttlMillis));
+        }
+        return principal;
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserAccessChanged(UserAccessChangedEvent event) {
+        invalidations.incrementAndGet();
+        entries.remove(event.getUsername());
+    }
+    
+    // Expired entries go first; if the cache is still full, the ones closest to expiry make room
+    private void evict(long now) {
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+        long cutoff = now + ttlMillis / 2;
+        if (entries.size() >= maxSize) {
+            entries.values().removeIf(entry -> entry.expiresAt <= cutoff);
+        }
+        if (entries.size() >= maxSize) {
+            entries.clear();
+        }
+    }
+    
+    private static User principalOf(User user) {
+        User principal = new User();
+        principal.setId(user.getId());
+        principal.setUsername(user.getUsername());
+        principal.setRole(user.getRole());
+        principal.setIsActive(user.getIsActive());
+        return principal;
+    }
+    
+    private static final class Entry {
+        private final User principal;
+        private final long expiresAt;
+        
+        Entry(User principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
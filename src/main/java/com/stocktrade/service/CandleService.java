@@ -0,0 +1,444 @@
+package com.stocktrade.service;
+
+import com.stocktrade.entity.Candle;
+import com.stocktrade.event.StockUpdatedEvent;
+import com.stocktrade.event.TradeExecutedEvent;
+import com.stocktrade.repository.CandleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Builds OHLCV bars from price updates and executed trades. Only 1m bars are fed directly; each closed bar
+// is folded into the open bar of the next interval, so every timeframe is a roll-up of the one below.
+// Closed bars stay in a per-interval ring for recent queries and are queued for batched inserts.
+@Service
+public class CandleService {
+    
+    private static final Logger log = LoggerFactory.getLogger(CandleService.class);
+    
+    public enum Interval {
+        ONE_MINUTE("1m", 60, 720),
+        FIVE_MINUTES("5m", 300, 576),
+        FIFTEEN_MINUTES("15m", 900, 672),
+        ONE_HOUR("1h", 3600, 720),
+        ONE_DAY("1d", 86400, 365);
+        
+        private final String label;
+        private final long seconds;
+        private final int retained;
+        
+        Interval(String label, long seconds, int retained) {
+            this.label = label;
+            this.seconds = seconds;
+            this.retained = retained;
+        }
+        
+        public String getLabel() { return label; }
+        public long getSeconds() { return seconds; }
+        
+        public static Interval fromLabel(String label) {
+            for (Interval interval : values()) {
+                if (interval.label.equalsIgnoreCase(label)) {
+                    return interval;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported candle interval: " + label);
+        }
+    }
+    
+    private static final Interval[] INTERVALS = Interval.values();
+    private static final int MAX_CANDLES = 1000;
+    private static final int BATCH_SIZE = 200;
+    
+    private static final String INSERT_SQL =
+            "INSERT INTO candles (stock_id, interval_code, open_time, open_price, high_price, low_price, " +
+            "close_price, volume, trade_count) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private final CandleRepository candleRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, SymbolCandles> seriesBySymbol = new ConcurrentHashMap<>();
+    private final Queue<PendingCandle> pending = new ConcurrentLinkedQueue<>();
+    
+    @Autowired
+    public CandleService(CandleRepository candleRepository, JdbcTemplate jdbcTemplate) {
+        this.candleRepository = candleRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    // Reloads closed bars since yesterday and re-folds every bar whose parent bar was never persisted,
+    // so a restart neither loses the higher bars that were still open nor starts them from scratch
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void restoreOpenBars() {
+        List<Candle> candles = candleRepository.findAllSince(LocalDate.now().minusDays(1).atStartOfDay());
+        Set<String> persisted = new HashSet<>();
+        for (Candle candle : candles) {
+            persisted.add(candleKey(candle.getStock().getId(), Interval.fromLabel(candle.getIntervalCode()).ordinal(),
+                    toSeconds(candle.getOpenTime())));
+        }
+        for (Candle candle : candles) {
+            int level = Interval.fromLabel(candle.getIntervalCode()).ordinal();
+            Bar bar = new Bar(candle);
+            Long stockId = candle.getStock().getId();
+            boolean parentOpen = level + 1 < INTERVALS.length
+                    && !persisted.contains(candleKey(stockId, level + 1, floor(bar.openTime, level + 1)));
+            series(candle.getStock().getSymbol(), stockId).restore(level, bar, parentOpen);
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTradeExecuted(TradeExecutedEvent event) {
+        if (event.getPrice() == null || event.getQuantity() == null) {
+            return;
+        }
+        series(event.getSymbol(), event.getStockId()).record(event.getPrice(), event.getQuantity(), true);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockUpdated(StockUpdatedEvent event) {
+        if (event.getCurrentPrice() == null) {
+            return;
+        }
+        series(event.getSymbol(), event.getStockId()).record(event.getCurrentPrice(), 0, false);
+    }
+    
+    // Bars are closed by time as well as by the next tick, so quiet symbols still get persisted
+    @Scheduled(fixedDelayString = "${candles.flush-interval-ms:5000}")
+    public void closeElapsedBars() {
+        long now = nowSeconds();
+        for (SymbolCandles series : seriesBySymbol.values()) {
+            series.closeElapsed(now);
+        }
+        flush();
+    }
+    
+    @PreDestroy
+    public void flush() {
+        List<PendingCandle> batch = new ArrayList<>(BATCH_SIZE);
+        PendingCandle candle;
+        while ((candle = pending.poll()) != null) {
+            batch.add(candle);
+            if (batch.size() == BATCH_SIZE) {
+                insert(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insert(batch);
+        }
+    }
+    
+    // Recent bars come from memory, older ones from the candles table; the open bar is included last
+    @Transactional(readOnly = true)
+    public List<CandleBar> getCandles(String symbol, Interval interval, LocalDateTime from, LocalDateTime to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        long fromSeconds = toSeconds(from);
+        long toSeconds = toSeconds(to);
+        if ((toSeconds - fromSeconds) / interval.getSeconds() >= MAX_CANDLES) {
+            throw new IllegalArgumentException("Requested range covers more than " + MAX_CANDLES + " candles");
+        }
+        
+        String key = symbol.toUpperCase();
+        SymbolCandles series = seriesBySymbol.get(key);
+        long memoryStart = Long.MAX_VALUE;
+        List<Bar> recent = new ArrayList<>();
+        if (series != null) {
+            synchronized (series) {
+                series.closeElapsed(nowSeconds());
+                memoryStart = series.oldestOpenTime(interval.ordinal());
+                recent = series.snapshot(interval.ordinal(), fromSeconds, toSeconds);
+            }
+        }
+        
+        List<CandleBar> candles = new ArrayList<>();
+        if (fromSeconds < memoryStart) {
+            LocalDateTime storedUntil = memoryStart <= toSeconds ? fromSeconds(memoryStart - 1) : to;
+            for (Candle candle : candleRepository.findCandles(key, interval.getLabel(), from, storedUntil)) {
+                candles.add(new CandleBar(new Bar(candle)));
+            }
+        }
+        for (Bar bar : recent) {
+            candles.add(new CandleBar(bar));
+        }
+        return candles;
+    }
+    
+    private SymbolCandles series(String symbol, Long stockId) {
+        return seriesBySymbol.computeIfAbsent(symbol.toUpperCase(), key -> new SymbolCandles(stockId));
+    }
+    
+    private void insert(List<PendingCandle> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (statement, candle) -> {
+                Bar bar = candle.bar;
+                statement.setLong(1, candle.stockId);
+                statement.setString(2, candle.interval.getLabel());
+                statement.setTimestamp(3, Timestamp.valueOf(fromSeconds(bar.openTime)));
+                statement.setBigDecimal(4, bar.open);
+                statement.setBigDecimal(5, bar.high);
+                statement.setBigDecimal(6, bar.low);
+                statement.setBigDecimal(7, bar.close);
+                statement.setLong(8, bar.volume);
+                statement.setInt(9, bar.tradeCount);
+            });
+        } catch (DataAccessException e) {
+            // The bars are still served from memory; dropping them beats retrying a batch that keeps failing
+            log.warn("Could not persist {} candles: {}", batch.size(), e.getMostSpecificCause().getMessage());
+        }
+    }
+    
+    private static String candleKey(Long stockId, int level, long openTime) {
+        return stockId + ":" + level + ":" + openTime;
+    }
+    
+    private static long floor(long seconds, int level) {
+        long width = INTERVALS[level].getSeconds();
+        return Math.floorDiv(seconds, width) * width;
+    }
+    
+    // Bars are aligned on wall-clock time, like the TIMESTAMP columns
+    private static long toSeconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+    
+    private static LocalDateTime fromSeconds(long seconds) {
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+    
+    private static long nowSeconds() {
+        return toSeconds(LocalDateTime.now());
+    }
+    
+    private final class SymbolCandles {
+        private final Long stockId;
+        private final Bar[] open = new Bar[INTERVALS.length];
+        private final List<ArrayDeque<Bar>> closed = new ArrayList<>();
+        
+        SymbolCandles(Long stockId) {
+            this.stockId = stockId;
+            for (Interval interval : INTERVALS) {
+                closed.add(new ArrayDeque<>(interval.retained));
+            }
+        }
+        
+        // Ticks are placed by arrival time; a trade committed just after a minute boundary lands in the
+        // new bar rather than reopening one that may already be persisted
+        synchronized void record(BigDecimal price, long quantity, boolean trade) {
+            long now = nowSeconds();
+            closeElapsed(now);
+            if (open[0] == null) {
+                open[0] = new Bar(floor(now, 0), price);
+            }
+            open[0].add(price, quantity, trade);
+        }
+        
+        synchronized void closeElapsed(long now) {
+            for (int level = 0; level < open.length; level++) {
+                Bar bar = open[level];
+                if (bar != null && bar.openTime + INTERVALS[level].getSeconds() <= now) {
+                    open[level] = null;
+                    close(level, bar);
+                }
+            }
+        }
+        
+        // Bars arrive oldest first; an open parent whose bucket has already passed is closed by the next sweep
+        synchronized void restore(int level, Bar bar, boolean parentOpen) {
+            retain(level, bar);
+            if (parentOpen) {
+                fold(level + 1, bar);
+            }
+        }
+        
+        synchronized long oldestOpenTime(int level) {
+            ArrayDeque<Bar> ring = closed.get(level);
+            if (!ring.isEmpty()) {
+                return ring.peekFirst().openTime;
+            }
+            Bar live = liveBar(level);
+            return live != null ? live.openTime : Long.MAX_VALUE;
+        }
+        
+        synchronized List<Bar> snapshot(int level, long from, long to) {
+            List<Bar> bars = new ArrayList<>();
+            for (Bar bar : closed.get(level)) {
+                if (bar.openTime >= from && bar.openTime <= to) {
+                    bars.add(bar);
+                }
+            }
+            Bar live = liveBar(level);
+            if (live != null && live.openTime >= from && live.openTime <= to) {
+                bars.add(live);
+            }
+            return bars;
+        }
+        
+        // The open bar of a level only holds closed lower bars; merge in the still-open ones beneath it
+        private Bar liveBar(int level) {
+            Bar live = null;
+            for (int lower = level; lower >= 0; lower--) {
+                Bar bar = open[lower];
+                if (bar == null) {
+                    continue;
+                }
+                if (live == null) {
+                    live = Bar.startingWith(floor(bar.openTime, level), bar);
+                } else if (floor(bar.openTime, level) == live.openTime) {
+                    live.merge(bar);
+                }
+            }
+            return live;
+        }
+        
+        private void close(int level, Bar bar) {
+            retain(level, bar);
+            pending.add(new PendingCandle(stockId, INTERVALS[level], bar));
+            if (level + 1 < open.length) {
+                fold(level + 1, bar);
+            }
+        }
+        
+        private void fold(int level, Bar bar) {
+            long bucket = floor(bar.openTime, level);
+            Bar target = open[level];
+            if (target != null && target.openTime != bucket) {
+                open[level] = null;
+                close(level, target);
+                target = null;
+            }
+            if (target == null) {
+                open[level] = Bar.startingWith(bucket, bar);
+            } else {
+                target.merge(bar);
+            }
+        }
+        
+        private void retain(int level, Bar bar) {
+            ArrayDeque<Bar> ring = closed.get(level);
+            ring.addLast(bar);
+            if (ring.size() > INTERVALS[level].retained) {
+                ring.removeFirst();
+            }
+        }
+    }
+    
+    // Mutable while open; never modified once closed, so closed bars are shared without copying
+    private static final class Bar {
+        private final long openTime;
+        private BigDecimal open;
+        private BigDecimal high;
+        private BigDecimal low;
+        private BigDecimal close;
+        private long volume;
+        private int tradeCount;
+        
+        Bar(long openTime, BigDecimal price) {
+            this.openTime = openTime;
+            this.open = price;
+            this.high = price;
+            this.low = price;
+            this.close = price;
+        }
+        
+        Bar(Candle candle) {
+            this(toSeconds(candle.getOpenTime()), candle.getOpenPrice());
+            this.high = candle.getHighPrice();
+            this.low = candle.getLowPrice();
+            this.close = candle.getClosePrice();
+            this.volume = candle.getVolume();
+            this.tradeCount = candle.getTradeCount();
+        }
+        
+        static Bar startingWith(long openTime, Bar first) {
+            Bar bar = new Bar(openTime, first.open);
+            bar.merge(first);
+            return bar;
+        }
+        
+        void add(BigDecimal price, long quantity, boolean trade) {
+            high = high.max(price);
+            low = low.min(price);
+            close = price;
+            if (trade) {
+                volume += quantity;
+                tradeCount++;
+            }
+        }
+        
+        // Folds in a bar that started at or after this one
+        void merge(Bar later) {
+            high = high.max(later.high);
+            low = low.min(later.low);
+            close = later.close;
+            volume += later.volume;
+            tradeCount += later.tradeCount;
+        }
+    }
+    
+    private static final class PendingCandle {
+        private final Long stockId;
+        private final Interval interval;
+        private final Bar bar;
+        
+        PendingCandle(Long stockId, Interval interval, Bar bar) {
+            this.stockId = stockId;
+            this.interval = interval;
+            this.bar = bar;
+        }
+    }
+    
+    public static class CandleBar {
+        private final LocalDateTime openTime;
+        private final BigDecimal open;
+        private final BigDecimal high;
+        private final BigDecimal low;
+        private final BigDecimal close;
+        private final long volume;
+        private final int tradeCount;
+        
+        CandleBar(Bar bar) {
+            this.openTime = fromSeconds(bar.openTime);
+            this.open = bar.open;
+            this.high = bar.high;
+            this.low = bar.low;
+            this.close = bar.close;
+            this.volume = bar.volume;
+            this.tradeCount = bar.tradeCount;
+        }
+        
+        // Getters
+        public LocalDateTime getOpenTime() { return openTime; }
+        public BigDecimal getOpen() { return open; }
+        public BigDecimal getHigh() { return high; }
+        public BigDecimal getLow() { return low; }
+        public BigDecimal getClose() { return close; }
+        public long getVolume() { return volume; }
+        public int getTradeCount() { return tradeCount; }
+    }
+}
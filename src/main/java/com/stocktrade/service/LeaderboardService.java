@@ -0,0 +1,320 @@
+package com.stocktrade.service;
+
+import com.stocktrade.entity.Portfolio;
+import com.stocktrade.entity.User;
+import com.stocktrade.event.AccountUpdatedEvent;
+import com.stocktrade.event.StockUniverseLoadedEvent;
+import com.stocktrade.event.StockUpdatedEvent;
+import com.stocktrade.event.TradeExecutedEvent;
+import com.stocktrade.repository.PortfolioRepository;
+import com.stocktrade.repository.UserRepository;
+import com.stocktrade.util.RankedIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class LeaderboardService {
+    
+    public enum Metric {
+        EQUITY, RETURN
+    }
+    
+    private static final int MAX_LIMIT = 100;
+    
+    private final UserRepository userRepository;
+    private final PortfolioRepository portfolioRepository;
+    
+    // Mutations are serialized on this lock; reads go through the indexes' own read locks
+    private final Object lock = new Object();
+    private final Map<Long, AccountStanding> accounts = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> holdersBySymbol = new ConcurrentHashMap<>();
+    private final Map<String, Double> latestPrices = new ConcurrentHashMap<>();
+    private final RankedIndex<Long> equityIndex = new RankedIndex<>();
+    private final RankedIndex<Long> returnIndex = new RankedIndex<>();
+    
+    @Autowired
+    public LeaderboardService(UserRepository userRepository, PortfolioRepository portfolioRepository) {
+        this.userRepository = userRepository;
+        this.portfolioRepository = portfolioRepository;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        List<User> users = userRepository.findByIsActiveTrue();
+        List<Object[]> positions = portfolioRepository.findAllOpenPositionValues();
+        
+        Map<Long, AccountStanding> rebuilt = new HashMap<>();
+        for (User user : users) {
+            rebuilt.put(user.getId(), new AccountStanding(user));
+        }
+        
+        synchronized (lock) {
+            accounts.clear();
+            holdersBySymbol.clear();
+            latestPrices.clear();
+            equityIndex.clear();
+            returnIndex.clear();
+            
+            for (Object[] row : positions) {
+                AccountStanding account = rebuilt.get((Long) row[0]);
+                if (account == null) {
+                    continue;
+                }
+                String symbol = (String) row[1];
+                int quantity = (Integer) row[2];
+                latestPrices.putIfAbsent(symbol, ((BigDecimal) row[4]).doubleValue());
+                account.addPosition(symbol, quantity, ((BigDecimal) row[3]).doubleValue() * quantity);
+            }
+            for (AccountStanding account : rebuilt.values()) {
+                account.revalue(latestPrices);
+                index(account);
+            }
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onTradeExecuted(TradeExecutedEvent event) {
+        refreshAccount(event.getUserId());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onAccountUpdated(AccountUpdatedEvent event) {
+        refreshAccount(event.getUserId());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(readOnly = true)
+    public void onUniverseLoaded(StockUniverseLoadedEvent event) {
+        rebuild();
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockUpdated(StockUpdatedEvent event) {
+        if (event.getCurrentPrice() == null) {
+            return;
+        }
+        double price = event.getCurrentPrice().doubleValue();
+        
+        synchronized (lock) {
+            Double previous = latestPrices.put(event.getSymbol(), price);
+            if (previous == null || previous == price) {
+                return;
+            }
+            Set<Long> holders = holdersBySymbol.get(event.getSymbol());
+            if (holders == null) {
+                return;
+            }
+            for (Long userId : holders) {
+                AccountStanding account = accounts.get(userId);
+                if (account != null) {
+                    account.applyPriceChange(event.getSymbol(), previous, price);
+                    index(account);
+                }
+            }
+        }
+    }
+    
+    public List<LeaderboardEntry> getTopAccounts(Metric metric, int limit) {
+        int boundedLimit = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        List<LeaderboardEntry> entries = new ArrayList<>(boundedLimit);
+        for (RankedIndex.Entry<Long> ranked : indexFor(metric).top(boundedLimit)) {
+            AccountStanding account = accounts.get(ranked.getKey());
+            if (account != null) {
+                entries.add(toEntry(ranked.getRank(), account));
+            }
+        }
+        return entries;
+    }
+    
+    public Optional<AccountRanking> getAccountRanking(Long userId) {
+        AccountStanding account = accounts.get(userId);
+        if (account == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new AccountRanking(
+                toEntry(equityIndex.rank(userId), account),
+                equityIndex.rank(userId),
+                returnIndex.rank(userId),
+                equityIndex.size()
+        ));
+    }
+    
+    private void refreshAccount(Long userId) {
+        Optional<User> user = userRepository.findById(userId);
+        List<Portfolio> positions = portfolioRepository.findActivePortfoliosByUserId(userId);
+        
+        synchronized (lock) {
+            AccountStanding previous = accounts.remove(userId);
+            if (previous != null) {
+                previous.positions.keySet().forEach(symbol -> removeHolder(symbol, userId));
+            }
+            
+            if (user.isEmpty() || !Boolean.TRUE.equals(user.get().getIsActive())) {
+                equityIndex.remove(userId);
+                returnIndex.remove(userId);
+                return;
+            }
+            
+            AccountStanding account = new AccountStanding(user.get());
+            for (Portfolio position : positions) {
+                String symbol = position.getStock().getSymbol();
+                latestPrices.putIfAbsent(symbol, position.getStock().getCurrentPrice().doubleValue());
+                account.addPosition(symbol, position.getQuantity(), position.getTotalCost().doubleValue());
+            }
+            account.revalue(latestPrices);
+            index(account);
+        }
+    }
+    
+    private void index(AccountStanding account) {
+        accounts.put(account.userId, account);
+        for (String symbol : account.positions.keySet()) {
+            holdersBySymbol.computeIfAbsent(symbol, key -> ConcurrentHashMap.newKeySet()).add(account.userId);
+        }
+        equityIndex.put(account.userId, account.getEquity());
+        returnIndex.put(account.userId, account.getReturnPercentage());
+    }
+    
+    private void removeHolder(String symbol, Long userId) {
+        Set<Long> holders = holdersBySymbol.get(symbol);
+        if (holders != null) {
+            holders.remove(userId);
+            if (holders.isEmpty()) {
+                holdersBySymbol.remove(symbol);
+            }
+        }
+    }
+    
+    private RankedIndex<Long> indexFor(Metric metric) {
+        return metric == Metric.RETURN ? returnIndex : equityIndex;
+    }
+    
+    private LeaderboardEntry toEntry(int rank, AccountStanding account) {
+        return new LeaderboardEntry(
+                rank,
+                account.username,
+                BigDecimal.valueOf(account.getEquity()).setScale(2, RoundingMode.HALF_UP),
+                BigDecimal.valueOf(account.getReturnPercentage()).setScale(4, RoundingMode.HALF_UP)
+        );
+    }
+    
+    private static final class Position {
+        final int quantity;
+        final double costBasis;
+        
+        Position(int quantity, double costBasis) {
+            this.quantity = quantity;
+            this.costBasis = costBasis;
+        }
+    }
+    
+    private static final class AccountStanding {
+        final Long userId;
+        final String username;
+        final double cash;
+        final double realizedGainLoss;
+        final double realizedCostBasis;
+        final Map<String, Position> positions = new HashMap<>();
+        double openCostBasis;
+        volatile double holdingsValue;
+        
+        AccountStanding(User user) {
+            this.userId = user.getId();
+            this.username = user.getUsername();
+            this.cash = user.getCashBalance().doubleValue();
+            this.realizedGainLoss = user.getRealizedGainLoss() != null ? user.getRealizedGainLoss().doubleValue() : 0.0;
+            this.realizedCostBasis = user.getRealizedCostBasis() != null ? user.getRealizedCostBasis().doubleValue() : 0.0;
+        }
+        
+        void addPosition(String symbol, int quantity, double costBasis) {
+            positions.put(symbol, new Position(quantity, costBasis));
+            openCostBasis += costBasis;
+        }
+        
+        void revalue(Map<String, Double> prices) {
+            double value = 0.0;
+            for (Map.Entry<String, Position> entry : positions.entrySet()) {
+                value += entry.getValue().quantity * prices.getOrDefault(entry.getKey(), 0.0);
+            }
+            holdingsValue = value;
+        }
+        
+        void applyPriceChange(String symbol, double previousPrice, double newPrice) {
+            Position position = positions.get(symbol);
+            if (position != null) {
+                holdingsValue += position.quantity * (newPrice - previousPrice);
+            }
+        }
+        
+        double getEquity() {
+            return cash + holdingsValue;
+        }
+        
+        // Realized plus unrealized gain over all capital ever committed to positions
+        double getReturnPercentage() {
+            double invested = realizedCostBasis + openCostBasis;
+            if (invested <= 0.0) {
+                return 0.0;
+            }
+            return (realizedGainLoss + holdingsValue - openCostBasis) / invested * 100.0;
+        }
+    }
+    
+    public static class LeaderboardEntry {
+        private final int rank;
+        private final String username;
+        private final BigDecimal totalEquity;
+        private final BigDecimal returnPercentage;
+        
+        public LeaderboardEntry(int rank, String username, BigDecimal totalEquity, BigDecimal returnPercentage) {
+            this.rank = rank;
+            this.username = username;
+            this.totalEquity = totalEquity;
+            this.returnPercentage = returnPercentage;
+        }
+        
+        // Getters
+        public int getRank() { return rank; }
+        public String getUsername() { return username; }
+        public BigDecimal getTotalEquity() { return totalEquity; }
+        public BigDecimal getReturnPercentage() { return returnPercentage; }
+    }
+    
+    public static class AccountRanking {
+        private final LeaderboardEntry account;
+        private final int equityRank;
+        private final int returnRank;
+        private final int rankedAccounts;
+        
+        public AccountRanking(LeaderboardEntry account, int equityRank, int returnRank, int rankedAccounts) {
+            this.account = account;
+            this.equityRank = equityRank;
+            this.returnRank = returnRank;
+            this.rankedAccounts = rankedAccounts;
+        }
+        
+        // Getters
+        public LeaderboardEntry getAccount() { return account; }
+        public int getEquityRank() { return equityRank; }
+        public int getReturnRank() { return returnRank; }
+        public int getRankedAccounts() { return rankedAccounts; }
+    }
+}
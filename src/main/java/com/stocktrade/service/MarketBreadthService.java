@@ -0,0 +1,243 @@
+package com.stocktrade.service;
+
+import com.stocktrade.entity.Stock;
+import com.stocktrade.event.StockUniverseLoadedEvent;
+import com.stocktrade.event.StockUpdatedEvent;
+import com.stocktrade.repository.StockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Advancers/decliners, day highs/lows, market cap and per-sector change across active stocks. Each stock's
+// last contribution is kept so an update subtracts it and adds the new one; sums are exact BigDecimals, so
+// they never drift. Every update publishes an immutable view, making reads a single volatile load.
+@Service
+public class MarketBreadthService {
+    
+    public static final String UNCLASSIFIED = "UNCLASSIFIED";
+    
+    private final StockRepository stockRepository;
+    
+    // Mutations are serialized on this lock
+    private final Object lock = new Object();
+    private final Map<String, Contribution> contributions = new HashMap<>();
+    // When each removed symbol was removed, so a stale event committing after its removal can't bring it back
+    private final Map<String, LocalDateTime> removedAt = new HashMap<>();
+    private final Totals market = new Totals();
+    private final Map<String, Totals> sectors = new TreeMap<>();
+    private volatile MarketBreadth current = new MarketBreadth(new Totals().toBreadth(null), List.of(), null);
+    
+    @Autowired
+    public MarketBreadthService(StockRepository stockRepository) {
+        this.stockRepository = stockRepository;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        List<Stock> stocks = stockRepository.findByIsActiveTrue();
+        synchronized (lock) {
+            contributions.clear();
+            market.clear();
+            sectors.clear();
+            for (Stock stock : stocks) {
+                apply(new StockUpdatedEvent(stock));
+            }
+            publish();
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(readOnly = true)
+    public void onUniverseLoaded(StockUniverseLoadedEvent event) {
+        rebuild();
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockUpdated(StockUpdatedEvent event) {
+        synchronized (lock) {
+            apply(event);
+            publish();
+        }
+    }
+    
+    public MarketBreadth getBreadth() {
+        return current;
+    }
+    
+    private void apply(StockUpdatedEvent event) {
+        Contribution stored = contributions.get(event.getSymbol());
+        if (event.isOlderThan(stored != null ? stored.lastUpdated : removedAt.get(event.getSymbol()))) {
+            return;
+        }
+        Contribution previous = contributions.remove(event.getSymbol());
+        if (previous != null) {
+            market.add(previous, -1);
+            Totals sector = sectors.get(previous.sector);
+            sector.add(previous, -1);
+            if (sector.stockCount == 0) {
+                sectors.remove(previous.sector);
+            }
+        }
+        if (event.isActive() && event.getCurrentPrice() != null) {
+            Contribution contribution = new Contribution(event);
+            contributions.put(event.getSymbol(), contribution);
+            market.add(contribution, 1);
+            sectors.computeIfAbsent(contribution.sector, key -> new Totals()).add(contribution, 1);
+            removedAt.remove(event.getSymbol());
+        } else if (event.getLastUpdated() != null) {
+            removedAt.put(event.getSymbol(), event.getLastUpdated());
+        }
+    }
+    
+    private void publish() {
+        List<MarketBreadth.Breadth> sectorBreadth = new ArrayList<>(sectors.size());
+        for (Map.Entry<String, Totals> entry : sectors.entrySet()) {
+            sectorBreadth.add(entry.getValue().toBreadth(entry.getKey()));
+        }
+        current = new MarketBreadth(market.toBreadth(null), sectorBreadth, LocalDateTime.now());
+    }
+    
+    // What one stock adds to the totals, computed once per update
+    private static final class Contribution {
+        private final String sector;
+        private final int direction;
+        private final boolean atDayHigh;
+        private final boolean atDayLow;
+        private final long marketCap;
+        private final BigDecimal changePercentage;
+        private final LocalDateTime lastUpdated;
+        
+        Contribution(StockUpdatedEvent event) {
+            BigDecimal price = event.getCurrentPrice();
+            BigDecimal previousClose = event.getPreviousClose();
+            this.sector = event.getSector() != null ? event.getSector() : UNCLASSIFIED;
+            this.direction = previousClose != null ? price.compareTo(previousClose) : 0;
+            this.atDayHigh = event.getDayHigh() != null && price.compareTo(event.getDayHigh()) >= 0;
+            this.atDayLow = event.getDayLow() != null && price.compareTo(event.getDayLow()) <= 0;
+            this.marketCap = event.getMarketCap() != null ? event.getMarketCap() : 0;
+            this.lastUpdated = event.getLastUpdated();
+            // Same rounding as Stock.getPriceChangePercentage()
+            this.changePercentage = previousClose != null && previousClose.signum() > 0
+                    ? price.subtract(previousClose).divide(previousClose, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100))
+                    : BigDecimal.ZERO;
+        }
+    }
+    
+    private static final class Totals {
+        private int stockCount;
+        private int advancers;
+        private int decliners;
+        private int unchanged;
+        private int newDayHighs;
+        private int newDayLows;
+        private long marketCap;
+        private BigDecimal capWeightedChange = BigDecimal.ZERO;
+        private BigDecimal changeSum = BigDecimal.ZERO;
+        
+        void add(Contribution contribution, int sign) {
+            stockCount += sign;
+            if (contribution.direction > 0) {
+                advancers += sign;
+            } else if (contribution.direction < 0) {
+                decliners += sign;
+            } else {
+                unchanged += sign;
+            }
+            newDayHighs += contribution.atDayHigh ? sign : 0;
+            newDayLows += contribution.atDayLow ? sign : 0;
+            marketCap += sign * contribution.marketCap;
+            BigDecimal signed = sign > 0 ? contribution.changePercentage : contribution.changePercentage.negate();
+            capWeightedChange = capWeightedChange.add(signed.multiply(BigDecimal.valueOf(contribution.marketCap)));
+            changeSum = changeSum.add(signed);
+        }
+        
+        void clear() {
+            stockCount = advancers = decliners = unchanged = newDayHighs = newDayLows = 0;
+            marketCap = 0;
+            capWeightedChange = BigDecimal.ZERO;
+            changeSum = BigDecimal.ZERO;
+        }
+        
+        MarketBreadth.Breadth toBreadth(String sector) {
+            BigDecimal weighted = marketCap > 0
+                    ? capWeightedChange.divide(BigDecimal.valueOf(marketCap), 4, RoundingMode.HALF_UP)
+                    : null;
+            BigDecimal average = stockCount > 0
+                    ? changeSum.divide(BigDecimal.valueOf(stockCount), 4, RoundingMode.HALF_UP)
+                    : null;
+            return new MarketBreadth.Breadth(sector, stockCount, advancers, decliners, unchanged,
+                    newDayHighs, newDayLows, marketCap, weighted, average);
+        }
+    }
+    
+    public static class MarketBreadth {
+        private final Breadth market;
+        private final List<Breadth> sectors;
+        private final LocalDateTime asOf;
+        
+        MarketBreadth(Breadth market, List<Breadth> sectors, LocalDateTime asOf) {
+            this.market = market;
+            this.sectors = sectors;
+            this.asOf = asOf;
+        }
+        
+        // Getters
+        public Breadth getMarket() { return market; }
+        public List<Breadth> getSectors() { return sectors; }
+        public LocalDateTime getAsOf() { return asOf; }
+        
+        // Weighted change is by market cap over stocks that have one (null when none do); average change is
+        // equal-weighted over all stocks
+        public static class Breadth {
+            private final String sector;
+            private final int stockCount;
+            private final int advancers;
+            private final int decliners;
+            private final int unchanged;
+            private final int newDayHighs;
+            private final int newDayLows;
+            private final long marketCap;
+            private final BigDecimal weightedChangePercentage;
+            private final BigDecimal averageChangePercentage;
+            
+            Breadth(String sector, int stockCount, int advancers, int decliners, int unchanged, int newDayHighs,
+                    int newDayLows, long marketCap, BigDecimal weightedChangePercentage, BigDecimal averageChangePercentage) {
+                this.sector = sector;
+                this.stockCount = stockCount;
+                this.advancers = advancers;
+                this.decliners = decliners;
+                this.unchanged = unchanged;
+                this.newDayHighs = newDayHighs;
+                this.newDayLows = newDayLows;
+                this.marketCap = marketCap;
+                this.weightedChangePercentage = weightedChangePercentage;
+                this.averageChangePercentage = averageChangePercentage;
+            }
+            
+            // Getters
+            public String getSector() { return sector; }
+            public int getStockCount() { return stockCount; }
+            public int getAdvancers() { return advancers; }
+            public int getDecliners() { return decliners; }
+            public int getUnchanged() { return unchanged; }
+            public int getNewDayHighs() { return newDayHighs; }
+            public int getNewDayLows() { return newDayLows; }
+            public long getMarketCap() { return marketCap; }
+            public BigDecimal getWeightedChangePercentage() { return weightedChangePercentage; }
+            public BigDecimal getAverageChangePercentage() { return averageChangePercentage; }
+        }
+    }
+}
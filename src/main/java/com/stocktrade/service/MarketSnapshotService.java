@@ -0,0 +1,105 @@
+package com.stocktrade.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stocktrade.entity.Stock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+// The active-stock list rendered once per change into immutable JSON and CBOR (each plain and gzipped) and swapped in
+// atomically. Rendering happens on the first request after StockRankingService's version moves, so a burst
+// of price updates costs one render, and requests in between are a byte copy or a 304.
+@Service
+public class MarketSnapshotService {
+    
+    private final StockRankingService stockRankingService;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper cborMapper;
+    private final AtomicReference<MarketSnapshot> current = new AtomicReference<>();
+    
+    @Autowired
+    public MarketSnapshotService(StockRankingService stockRankingService, ObjectMapper objectMapper,
+                                 MappingJackson2CborHttpMessageConverter cborHttpMessageConverter) {
+        this.stockRankingService = stockRankingService;
+        this.objectMapper = objectMapper;
+        this.cborMapper = cborHttpMessageConverter.getObjectMapper();
+    }
+    
+    public MarketSnapshot getSnapshot() {
+        MarketSnapshot snapshot = current.get();
+        if (snapshot != null && snapshot.version == stockRankingService.getVersion()) {
+            return snapshot;
+        }
+        synchronized (this) {
+            snapshot = current.get();
+            long version = stockRankingService.getVersion();
+            if (snapshot == null || snapshot.version != version) {
+                snapshot = render(version, new ArrayList<>(stockRankingService.getActiveStocks()));
+                current.set(snapshot);
+            }
+            return snapshot;
+        }
+    }
+    
+    private MarketSnapshot render(long version, List<Stock> stocks) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(stocks);
+            byte[] cbor = cborMapper.writeValueAsBytes(stocks);
+            return new MarketSnapshot(version, json, gzip(json), cbor, gzip(cbor), DigestUtils.md5DigestAsHex(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not render market snapshot", e);
+        }
+    }
+    
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+    
+    public static final class MarketSnapshot {
+        private final long version;
+        private final byte[] json;
+        private final byte[] gzippedJson;
+        private final byte[] cbor;
+        private final byte[] gzippedCbor;
+        private final String digest;
+        
+        MarketSnapshot(long version, byte[] json, byte[] gzippedJson, byte[] cbor, byte[] gzippedCbor, String digest) {
+            this.version = version;
+            this.json = json;
+            this.gzippedJson = gzippedJson;
+            this.cbor = cbor;
+            this.gzippedCbor = gzippedCbor;
+            this.digest = digest;
+        }
+        
+        // Shared arrays; callers write them out and must not modify them
+        public byte[] getBody(boolean cbor, boolean gzipped) {
+            if (cbor) {
+                return gzipped ? gzippedCbor : this.cbor;
+            }
+            return gzipped ? gzippedJson : json;
+        }
+        
+        // Each encoding is its own representation, so each gets its own strong ETag. The JSON digest stands
+        // for the content; CBOR is rendered from the same list.
+        public String getETag(boolean cbor, boolean gzipped) {
+            return "\"" + digest + (cbor ? "-cbor" : "") + (gzipped ? "-gz" : "") + "\"";
+        }
+    }
+}
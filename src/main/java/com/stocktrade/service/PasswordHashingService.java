@@ -0,0 +1,195 @@
+package com.stocktrade.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Runs BCrypt work (logins, registrations, password changes) on its own small pool so a burst of logins
+// queues here instead of occupying servlet threads that trades need. The queue is bounded and a full queue
+// rejects at once; callers answer 503 rather than letting requests pile up behind ~100 ms hashes.
+@Service
+public class PasswordHashingService {
+    
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingService.class);
+    
+    // Upper bounds in milliseconds of the hash latency histogram; the last bucket takes everything slower
+    private static final long[] LATENCY_BUCKETS_MS = {25, 50, 100, 250, 500, 1000, Long.MAX_VALUE};
+    
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder[] latencyCounts = new LongAdder[LATENCY_BUCKETS_MS.length];
+    
+    public PasswordHashingService(@Value("${auth.hashing.threads:0}") int threads,
+                                  @Value("${auth.hashing.queue-capacity:32}") int queueCapacity) {
+        // By default half the cores, so hashing can never take the whole CPU away from request threads
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.queueCapacity = queueCapacity;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        for (int i = 0; i < latencyCounts.length; i++) {
+            latencyCounts[i] = new LongAdder();
+        }
+    }
+    
+    // Fails with RejectedExecutionException, without waiting, when the queue is full
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                waitNanos.add(System.nanoTime() - queuedAt);
+                try {
+                    return task.get();
+                } finally {
+                    completed.increment();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    // The application's encoder goes through this, so hash latency covers BCrypt itself and not the user lookup,
+    // insert or commit around it in a task
+    public PasswordEncoder timed(PasswordEncoder encoder) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                long startedAt = System.nanoTime();
+                try {
+                    return encoder.encode(rawPassword);
+                } finally {
+                    recordHash(System.nanoTime() - startedAt);
+                }
+            }
+            
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                long startedAt = System.nanoTime();
+                try {
+                    return encoder.matches(rawPassword, encodedPassword);
+                } finally {
+                    recordHash(System.nanoTime() - startedAt);
+                }
+            }
+            
+            @Override
+            public boolean upgradeEncoding(String encodedPassword) {
+                return encoder.upgradeEncoding(encodedPassword);
+            }
+        };
+    }
+    
+    public static boolean isRejection(Throwable error) {
+        Throwable cause = error;
+        while (cause != null && !(cause instanceof RejectedExecutionException)) {
+            cause = cause.getCause();
+        }
+        return cause != null;
+    }
+    
+    public HashingStats getStats() {
+        long count = completed.sum();
+        long hashCount = hashes.sum();
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+            String label = LATENCY_BUCKETS_MS[i] == Long.MAX_VALUE ? "+Inf" : Long.toString(LATENCY_BUCKETS_MS[i]);
+            histogram.put(label, latencyCounts[i].sum());
+        }
+        return new HashingStats(executor.getMaximumPoolSize(), executor.getActiveCount(), executor.getQueue().size(),
+                queueCapacity, count, rejected.sum(), hashCount,
+                hashCount > 0 ? hashNanos.sum() / 1e6 / hashCount : 0.0,
+                count > 0 ? waitNanos.sum() / 1e6 / count : 0.0,
+                histogram);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+    
+    private void recordHash(long hashed) {
+        hashes.increment();
+        hashNanos.add(hashed);
+        long millis = TimeUnit.NANOSECONDS.toMillis(hashed);
+        int bucket = 0;
+        while (millis > LATENCY_BUCKETS_MS[bucket]) {
+            bucket++;
+        }
+        latencyCounts[bucket].increment();
+        if (millis > 1000) {
+            log.warn("Password hash took {} ms", millis);
+        }
+    }
+    
+    private static final class HashingThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+        
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+    
+    public static class HashingStats {
+        private final int threads;
+        private final int active;
+        private final int queued;
+        private final int queueCapacity;
+        private final long completed;
+        private final long rejected;
+        private final long hashes;
+        private final double averageHashMillis;
+        private final double averageWaitMillis;
+        private final Map<String, Long> hashMillisHistogram;
+        
+        HashingStats(int threads, int active, int queued, int queueCapacity, long completed, long rejected, long hashes,
+                     double averageHashMillis, double averageWaitMillis, Map<String, Long> hashMillisHistogram) {
+            this.threads = threads;
+            this.active = active;
+            this.queued = queued;
+            this.queueCapacity = queueCapacity;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.hashes = hashes;
+            this.averageHashMillis = averageHashMillis;
+            this.averageWaitMillis = averageWaitMillis;
+            this.hashMillisHistogram = hashMillisHistogram;
+        }
+        
+        // Getters
+        public int getThreads() { return threads; }
+        public int getActive() { return active; }
+        public int getQueued() { return queued; }
+        public int getQueueCapacity() { return queueCapacity; }
+        public long getCompleted() { return completed; }
+        public long getRejected() { return rejected; }
+        public long getHashes() { return hashes; }
+        public double getAverageHashMillis() { return averageHashMillis; }
+        public double getAverageWaitMillis() { return averageWaitMillis; }
+        public Map<String, Long> getHashMillisHistogram() { return hashMillisHistogram; }
+    }
+}
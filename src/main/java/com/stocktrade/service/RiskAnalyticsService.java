@@ -0,0 +1,249 @@
+package com.stocktrade.service;
+
+import com.stocktrade.entity.Portfolio;
+import com.stocktrade.repository.PortfolioRepository;
+import com.stocktrade.repository.PriceHistoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+@Service
+@Transactional(readOnly = true)
+public class RiskAnalyticsService {
+    
+    private final PortfolioRepository portfolioRepository;
+    private final PriceHistoryRepository priceHistoryRepository;
+    
+    @Autowired
+    public RiskAnalyticsService(PortfolioRepository portfolioRepository,
+                               PriceHistoryRepository priceHistoryRepository) {
+        this.portfolioRepository = portfolioRepository;
+        this.priceHistoryRepository = priceHistoryRepository;
+    }
+    
+    public PortfolioRiskReport analyzePortfolioRisk(Long userId, int lookbackDays, double confidenceLevel) {
+        if (lookbackDays < 2) {
+            throw new IllegalArgumentException("Lookback must be at least 2 days");
+        }
+        if (confidenceLevel <= 0.0 || confidenceLevel >= 1.0) {
+            throw new IllegalArgumentException("Confidence level must be between 0 and 1");
+        }
+        
+        List<Portfolio> holdings = portfolioRepository.findActivePortfoliosByUserIdOrderByValue(userId);
+        int holdingCount = holdings.size();
+        
+        String[] symbols = new String[holdingCount];
+        double[] marketValues = new double[holdingCount];
+        double portfolioValue = 0.0;
+        for (int i = 0; i < holdingCount; i++) {
+            Portfolio holding = holdings.get(i);
+            symbols[i] = holding.getStock().getSymbol();
+            marketValues[i] = holding.getCurrentValue().doubleValue();
+            portfolioValue += marketValues[i];
+        }
+        
+        if (holdingCount == 0 || portfolioValue <= 0.0) {
+            return PortfolioRiskReport.empty(lookbackDays, confidenceLevel);
+        }
+        
+        double[] weights = new double[holdingCount];
+        for (int i = 0; i < holdingCount; i++) {
+            weights[i] = marketValues[i] / portfolioValue;
+        }
+        
+        // Align every active stock's closes on a shared date axis
+        List<Object[]> rows = priceHistoryRepository.findActiveClosingPricesSince(LocalDate.now().minusDays(lookbackDays));
+        Map<LocalDate, Integer> dateIndex = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            dateIndex.putIfAbsent(toLocalDate(row[1]), dateIndex.size());
+        }
+        int days = dateIndex.size();
+        
+        Map<String, double[]> closesBySymbol = new HashMap<>();
+        for (Object[] row : rows) {
+            double[] closes = closesBySymbol.computeIfAbsent((String) row[0], key -> {
+                double[] series = new double[days];
+                Arrays.fill(series, Double.NaN);
+                return series;
+            });
+            closes[dateIndex.get(toLocalDate(row[1]))] = ((BigDecimal) row[2]).doubleValue();
+        }
+        
+        int returnLength = Math.max(days - 1, 0);
+        double[][] marketReturns = closesBySymbol.values().parallelStream()
+                .map(closes -> {
+                    RiskMath.forwardFill(closes);
+                    return RiskMath.dailyReturns(closes);
+                })
+                .toArray(double[][]::new);
+        double[] marketIndex = RiskMath.equalWeightedIndex(marketReturns, returnLength);
+        
+        double[][] holdingReturns = new double[holdingCount][];
+        for (int i = 0; i < holdingCount; i++) {
+            double[] closes = closesBySymbol.get(symbols[i]);
+            if (closes == null) {
+                holdingReturns[i] = new double[returnLength];
+                Arrays.fill(holdingReturns[i], Double.NaN);
+            } else {
+                holdingReturns[i] = RiskMath.dailyReturns(closes);
+            }
+        }
+        
+        double[] volatilities = new double[holdingCount];
+        double[] betas = new double[holdingCount];
+        double[] positionVaR = new double[holdingCount];
+        IntStream.range(0, holdingCount).parallel().forEach(i -> {
+            volatilities[i] = RiskMath.annualize(RiskMath.stdDev(holdingReturns[i]));
+            betas[i] = RiskMath.beta(holdingReturns[i], marketIndex);
+            positionVaR[i] = RiskMath.historicalVaR(holdingReturns[i], confidenceLevel);
+        });
+        double[][] correlations = RiskMath.correlationMatrix(holdingReturns);
+        
+        double[] portfolioReturns = RiskMath.weightedReturns(holdingReturns, weights, returnLength);
+        double dailyVolatility = RiskMath.stdDev(portfolioReturns);
+        double portfolioBeta = RiskMath.beta(portfolioReturns, marketIndex);
+        double valueAtRiskFraction = RiskMath.historicalVaR(portfolioReturns, confidenceLevel);
+        
+        List<PositionRisk> positions = new ArrayList<>(holdingCount);
+        for (int i = 0; i < holdingCount; i++) {
+            positions.add(new PositionRisk(
+                    symbols[i],
+                    toDecimal(marketValues[i], 2),
+                    toPercentage(weights[i]),
+                    toPercentage(volatilities[i]),
+                    toDecimal(betas[i], 4),
+                    toPercentage(positionVaR[i])
+            ));
+        }
+        
+        BigDecimal[][] correlationMatrix = new BigDecimal[holdingCount][holdingCount];
+        for (int i = 0; i < holdingCount; i++) {
+            for (int j = 0; j < holdingCount; j++) {
+                correlationMatrix[i][j] = toDecimal(correlations[i][j], 4);
+            }
+        }
+        
+        return new PortfolioRiskReport(
+                lookbackDays,
+                RiskMath.countValid(portfolioReturns),
+                toDecimal(portfolioValue, 2),
+                toPercentage(dailyVolatility),
+                toPercentage(RiskMath.annualize(dailyVolatility)),
+                toDecimal(portfolioBeta, 4),
+                BigDecimal.valueOf(confidenceLevel),
+                toPercentage(valueAtRiskFraction),
+                toDecimal(valueAtRiskFraction * portfolioValue, 2),
+                positions,
+                Arrays.asList(symbols),
+                correlationMatrix
+        );
+    }
+    
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof Date ? ((Date) value).toLocalDate() : (LocalDate) value;
+    }
+    
+    private static BigDecimal toDecimal(double value, int scale) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return null;
+        }
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP);
+    }
+    
+    private static BigDecimal toPercentage(double fraction) {
+        return toDecimal(fraction * 100.0, 4);
+    }
+    
+    public static class PositionRisk {
+        private final String symbol;
+        private final BigDecimal marketValue;
+        private final BigDecimal weightPercentage;
+        private final BigDecimal annualizedVolatility;
+        private final BigDecimal beta;
+        private final BigDecimal valueAtRiskPercentage;
+        
+        public PositionRisk(String symbol, BigDecimal marketValue, BigDecimal weightPercentage,
+                           BigDecimal annualizedVolatility, BigDecimal beta, BigDecimal valueAtRiskPercentage) {
+            this.symbol = symbol;
+            this.marketValue = marketValue;
+            this.weightPercentage = weightPercentage;
+            this.annualizedVolatility = annualizedVolatility;
+            this.beta = beta;
+            this.valueAtRiskPercentage = valueAtRiskPercentage;
+        }
+        
+        // Getters
+        public String getSymbol() { return symbol; }
+        public BigDecimal getMarketValue() { return marketValue; }
+        public BigDecimal getWeightPercentage() { return weightPercentage; }
+        public BigDecimal getAnnualizedVolatility() { return annualizedVolatility; }
+        public BigDecimal getBeta() { return beta; }
+        public BigDecimal getValueAtRiskPercentage() { return valueAtRiskPercentage; }
+    }
+    
+    public static class PortfolioRiskReport {
+        private final int lookbackDays;
+        private final int observations;
+        private final BigDecimal portfolioValue;
+        private final BigDecimal dailyVolatility;
+        private final BigDecimal annualizedVolatility;
+        private final BigDecimal beta;
+        private final BigDecimal confidenceLevel;
+        private final BigDecimal valueAtRiskPercentage;
+        private final BigDecimal valueAtRisk;
+        private final List<PositionRisk> positions;
+        private final List<String> correlationSymbols;
+        private final BigDecimal[][] correlationMatrix;
+        
+        public PortfolioRiskReport(int lookbackDays, int observations, BigDecimal portfolioValue,
+                                  BigDecimal dailyVolatility, BigDecimal annualizedVolatility, BigDecimal beta,
+                                  BigDecimal confidenceLevel, BigDecimal valueAtRiskPercentage, BigDecimal valueAtRisk,
+                                  List<PositionRisk> positions, List<String> correlationSymbols,
+                                  BigDecimal[][] correlationMatrix) {
+            this.lookbackDays = lookbackDays;
+            this.observations = observations;
+            this.portfolioValue = portfolioValue;
+            this.dailyVolatility = dailyVolatility;
+            this.annualizedVolatility = annualizedVolatility;
+            this.beta = beta;
+            this.confidenceLevel = confidenceLevel;
+            this.valueAtRiskPercentage = valueAtRiskPercentage;
+            this.valueAtRisk = valueAtRisk;
+            this.positions = positions;
+            this.correlationSymbols = correlationSymbols;
+            this.correlationMatrix = correlationMatrix;
+        }
+        
+        static PortfolioRiskReport empty(int lookbackDays, double confidenceLevel) {
+            return new PortfolioRiskReport(lookbackDays, 0, BigDecimal.ZERO, null, null, null,
+                    BigDecimal.valueOf(confidenceLevel), null, BigDecimal.ZERO,
+                    List.of(), List.of(), new BigDecimal[0][0]);
+        }
+        
+        // Getters
+        public int getLookbackDays() { return lookbackDays; }
+        public int getObservations() { return observations; }
+        public BigDecimal getPortfolioValue() { return portfolioValue; }
+        public BigDecimal getDailyVolatility() { return dailyVolatility; }
+        public BigDecimal getAnnualizedVolatility() { return annualizedVolatility; }
+        public BigDecimal getBeta() { return beta; }
+        public BigDecimal getConfidenceLevel() { return confidenceLevel; }
+        public BigDecimal getValueAtRiskPercentage() { return valueAtRiskPercentage; }
+        public BigDecimal getValueAtRisk() { return valueAtRisk; }
+        public List<PositionRisk> getPositions() { return positions; }
+        public List<String> getCorrelationSymbols() { return correlationSymbols; }
+        public BigDecimal[][] getCorrelationMatrix() { return correlationMatrix; }
+    }
+}
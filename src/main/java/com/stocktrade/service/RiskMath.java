@@ -0,0 +1,175 @@
+package com.stocktrade.service;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Statistics over aligned daily series; missing observations are NaN and skipped pairwise
+final class RiskMath {
+    
+    static final int TRADING_DAYS_PER_YEAR = 252;
+    
+    private RiskMath() {}
+    
+    static void forwardFill(double[] series) {
+        double last = Double.NaN;
+        for (int t = 0; t < series.length; t++) {
+            if (Double.isNaN(series[t])) {
+                series[t] = last;
+            } else {
+                last = series[t];
+            }
+        }
+    }
+    
+    static double[] dailyReturns(double[] closes) {
+        double[] returns = new double[Math.max(closes.length - 1, 0)];
+        for (int t = 1; t < closes.length; t++) {
+            double previous = closes[t - 1];
+            double current = closes[t];
+            returns[t - 1] = Double.isNaN(previous) || Double.isNaN(current) || previous == 0.0
+                    ? Double.NaN
+                    : current / previous - 1.0;
+        }
+        return returns;
+    }
+    
+    static int countValid(double[] x) {
+        int n = 0;
+        for (double v : x) {
+            if (!Double.isNaN(v)) n++;
+        }
+        return n;
+    }
+    
+    static double stdDev(double[] x) {
+        int n = 0;
+        double sum = 0.0;
+        double sumSq = 0.0;
+        for (double v : x) {
+            if (!Double.isNaN(v)) {
+                n++;
+                sum += v;
+                sumSq += v * v;
+            }
+        }
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double variance = (sumSq - sum * sum / n) / (n - 1);
+        return Math.sqrt(Math.max(variance, 0.0));
+    }
+    
+    static double annualize(double dailyStdDev) {
+        return dailyStdDev * Math.sqrt(TRADING_DAYS_PER_YEAR);
+    }
+    
+    static double beta(double[] x, double[] market) {
+        int n = 0;
+        double sumX = 0.0, sumM = 0.0, sumXM = 0.0, sumMM = 0.0;
+        for (int t = 0; t < x.length; t++) {
+            double a = x[t];
+            double m = market[t];
+            if (!Double.isNaN(a) && !Double.isNaN(m)) {
+                n++;
+                sumX += a;
+                sumM += m;
+                sumXM += a * m;
+                sumMM += m * m;
+            }
+        }
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double covariance = sumXM - sumX * sumM / n;
+        double marketVariance = sumMM - sumM * sumM / n;
+        return marketVariance > 0.0 ? covariance / marketVariance : Double.NaN;
+    }
+    
+    static double correlation(double[] x, double[] y) {
+        int n = 0;
+        double sumX = 0.0, sumY = 0.0, sumXY = 0.0, sumXX = 0.0, sumYY = 0.0;
+        for (int t = 0; t < x.length; t++) {
+            double a = x[t];
+            double b = y[t];
+            if (!Double.isNaN(a) && !Double.isNaN(b)) {
+                n++;
+                sumX += a;
+                sumY += b;
+                sumXY += a * b;
+                sumXX += a * a;
+                sumYY += b * b;
+            }
+        }
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double covariance = sumXY - sumX * sumY / n;
+        double varianceX = sumXX - sumX * sumX / n;
+        double varianceY = sumYY - sumY * sumY / n;
+        if (varianceX <= 0.0 || varianceY <= 0.0) {
+            return Double.NaN;
+        }
+        return covariance / Math.sqrt(varianceX * varianceY);
+    }
+    
+    // Historical VaR as a positive loss fraction at the given confidence level
+    static double historicalVaR(double[] returns, double confidenceLevel) {
+        double[] valid = Arrays.stream(returns).filter(v -> !Double.isNaN(v)).toArray();
+        if (valid.length == 0) {
+            return Double.NaN;
+        }
+        Arrays.sort(valid);
+        int index = (int) Math.floor((1.0 - confidenceLevel) * valid.length);
+        index = Math.min(Math.max(index, 0), valid.length - 1);
+        return Math.max(-valid[index], 0.0);
+    }
+    
+    static double[] equalWeightedIndex(double[][] returns, int length) {
+        double[] index = new double[length];
+        for (int t = 0; t < length; t++) {
+            double sum = 0.0;
+            int n = 0;
+            for (double[] series : returns) {
+                double v = series[t];
+                if (!Double.isNaN(v)) {
+                    sum += v;
+                    n++;
+                }
+            }
+            index[t] = n > 0 ? sum / n : Double.NaN;
+        }
+        return index;
+    }
+    
+    // Weights of holdings without an observation on a given day are spread over the rest
+    static double[] weightedReturns(double[][] returns, double[] weights, int length) {
+        double[] combined = new double[length];
+        for (int t = 0; t < length; t++) {
+            double sum = 0.0;
+            double weightSum = 0.0;
+            for (int i = 0; i < returns.length; i++) {
+                double v = returns[i][t];
+                if (!Double.isNaN(v)) {
+                    sum += weights[i] * v;
+                    weightSum += weights[i];
+                }
+            }
+            combined[t] = weightSum > 0.0 ? sum / weightSum : Double.NaN;
+        }
+        return combined;
+    }
+    
+    static double[][] correlationMatrix(double[][] returns) {
+        int n = returns.length;
+        double[][] matrix = new double[n][n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            matrix[i][i] = 1.0;
+            for (int j = i + 1; j < n; j++) {
+                double rho = correlation(returns[i], returns[j]);
+                matrix[i][j] = rho;
+                matrix[j][i] = rho;
+            }
+        });
+        return matrix;
+    }
+}
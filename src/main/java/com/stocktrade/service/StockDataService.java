@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.time.Duration;
@@ -32,17 +33,7 @@ public class StockDataService {
     
     public Stock getStockData(String symbol) {
         try {
-            String url = String.format("%s?function=GLOBAL_QUOTE&symbol=%s&apikey=%s", 
-                    alphaVantageBaseUrl, symbol.toUpperCase(), alphaVantageApiKey);
-            
-            String response = webClient.get()
-                    .uri(url)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .timeout(Duration.ofSeconds(10))
-                    .block();
-            
-            return parseAlphaVantageResponse(response, symbol);
+            return fetchStockData(symbol).block();
             
         } catch (WebClientResponseException e) {
             throw new RuntimeException("Failed to fetch stock data for " + symbol + ": " + e.getMessage(), e);
@@ -51,6 +42,19 @@ public class StockDataService {
         }
     }
     
+    // Non-blocking variant for callers that fetch several quotes at once
+    public Mono<Stock> fetchStockData(String symbol) {
+        String url = String.format("%s?function=GLOBAL_QUOTE&symbol=%s&apikey=%s", 
+                alphaVantageBaseUrl, symbol.toUpperCase(), alphaVantageApiKey);
+        
+        return webClient.get()
+                .uri(url)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(Duration.ofSeconds(10))
+                .map(response -> parseAlphaVantageResponse(response, symbol));
+    }
+    
     private Stock parseAlphaVantageResponse(String response, String symbol) {
         try {
             JsonNode rootNode = objectMapper.readTree(response);
@@ -124,6 +128,7 @@ public class StockDataService {
             stock.setMarketCap(getLongValue(rootNode, "MarketCapitalization"));
             stock.setPeRatio(getBigDecimalValue(rootNode, "PERatio"));
             stock.setDividendYield(getBigDecimalValue(rootNode, "DividendYield"));
+            stock.setSector(getTextValue(rootNode, "Sector"));
             stock.setFiftyTwoWeekHigh(getBigDecimalValue(rootNode, "52WeekHigh"));
             stock.setFiftyTwoWeekLow(getBigDecimalValue(rootNode, "52WeekLow"));
             
@@ -155,6 +160,9 @@ public class StockDataService {
                 if (overviewData.getDividendYield() != null) {
                     quoteData.setDividendYield(overviewData.getDividendYield());
                 }
+                if (overviewData.getSector() != null) {
+                    quoteData.setSector(overviewData.getSector());
+                }
                 if (overviewData.getFiftyTwoWeekHigh() != null) {
                     quoteData.setFiftyTwoWeekHigh(overviewData.getFiftyTwoWeekHigh());
                 }
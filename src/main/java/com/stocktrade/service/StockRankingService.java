@@ -0,0 +1,200 @@
+package com.stocktrade.service;
+
+import com.stocktrade.entity.Stock;
+import com.stocktrade.event.StockUniverseLoadedEvent;
+import com.stocktrade.event.StockUpdatedEvent;
+import com.stocktrade.repository.StockRepository;
+import com.stocktrade.util.RankedIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+// Market-wide rankings of active stocks, kept current from StockUpdatedEvent so list endpoints never query
+// the database. Rankings hold detached snapshots; ascending orders index the negated score so ties still
+// break on symbol ascending, matching the old sort-on-request behaviour.
+@Service
+public class StockRankingService {
+    
+    public enum Ranking {
+        GAINERS(stock -> stock.getPriceChangePercentage().doubleValue()),
+        LOSERS(stock -> -stock.getPriceChangePercentage().doubleValue()),
+        MOST_EXPENSIVE(stock -> stock.getCurrentPrice().doubleValue()),
+        CHEAPEST(stock -> -stock.getCurrentPrice().doubleValue()),
+        POPULAR(stock -> stock.getVolume() != null ? stock.getVolume() : 0);
+        
+        private final ToDoubleFunction<Stock> score;
+        
+        Ranking(ToDoubleFunction<Stock> score) {
+            this.score = score;
+        }
+    }
+    
+    private final StockRepository stockRepository;
+    
+    // Mutations are serialized on this lock; reads go through the indexes' own read locks
+    private final Object lock = new Object();
+    // Replaced whole by a rebuild, so readers never see a half-built universe; single updates change it in place
+    private volatile View view = new View(0);
+    // When each removed symbol was removed, so a stale event committing after its removal can't bring it back
+    private final Map<String, LocalDateTime> removedAt = new HashMap<>();
+    // Starts at the boot time in microseconds, so versions handed out before a restart are older than any after it
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis() * 1000);
+    
+    @Autowired
+    public StockRankingService(StockRepository stockRepository) {
+        this.stockRepository = stockRepository;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        List<Stock> stocks = stockRepository.findByIsActiveTrue();
+        synchronized (lock) {
+            View next = new View(version.get() + 1);
+            for (Stock stock : stocks) {
+                index(next, new StockUpdatedEvent(stock).toSnapshot());
+            }
+            view = next;
+            version.set(next.baseVersion);
+        }
+    }
+    
+    // A bulk import writes rows without per-stock events, so the view is rebuilt once from the table
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(readOnly = true)
+    public void onUniverseLoaded(StockUniverseLoadedEvent event) {
+        rebuild();
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockUpdated(StockUpdatedEvent event) {
+        synchronized (lock) {
+            View current = view;
+            Stock stored = current.snapshots.get(event.getSymbol());
+            if (event.isOlderThan(stored != null ? stored.getLastUpdated() : removedAt.get(event.getSymbol()))) {
+                return;
+            }
+            if (!event.isActive() || event.getCurrentPrice() == null) {
+                current.snapshots.remove(event.getSymbol());
+                current.indexes.values().forEach(index -> index.remove(event.getSymbol()));
+                if (event.getLastUpdated() != null) {
+                    removedAt.put(event.getSymbol(), event.getLastUpdated());
+                }
+            } else {
+                index(current, event.toSnapshot());
+            }
+            long next = version.get() + 1;
+            Long previous = current.changedAt.put(event.getSymbol(), next);
+            if (previous != null) {
+                current.changes.remove(previous);
+            }
+            current.changes.put(next, event.getSymbol());
+            version.set(next);
+        }
+    }
+    
+    public List<Stock> top(Ranking ranking, int limit) {
+        View current = view;
+        List<RankedIndex.Entry<String>> ranked = current.indexes.get(ranking).top(limit);
+        List<Stock> stocks = new ArrayList<>(ranked.size());
+        for (RankedIndex.Entry<String> entry : ranked) {
+            Stock stock = current.snapshots.get(entry.getKey());
+            if (stock != null) {
+                stocks.add(stock);
+            }
+        }
+        return stocks;
+    }
+    
+    // Active stocks ordered by symbol; read getVersion() first to know which changes a copy includes
+    public Collection<Stock> getActiveStocks() {
+        return view.snapshots.values();
+    }
+    
+    public Stock getActiveStock(String symbol) {
+        return view.snapshots.get(symbol);
+    }
+    
+    // Bumped after every change to the snapshots, and by nextVersion()
+    public long getVersion() {
+        return version.get();
+    }
+    
+    // A version for a change made elsewhere (a watchlist edit) that must order against stock changes
+    public long nextVersion() {
+        synchronized (lock) {
+            return version.incrementAndGet();
+        }
+    }
+    
+    // Which of the given symbols changed, or stopped being active, after a version. Walks the change log but
+    // switches to probing the symbols once the log turns out longer than the set, so the cost is bounded by
+    // whichever is smaller. Null when the version predates the last rebuild and the log cannot answer.
+    public List<String> changedSince(long since, Set<String> symbols) {
+        View current = view;
+        if (since < current.baseVersion) {
+            return null;
+        }
+        List<String> changed = new ArrayList<>();
+        int visited = 0;
+        for (String symbol : current.changes.tailMap(since, false).values()) {
+            if (++visited > symbols.size()) {
+                changed.clear();
+                for (String candidate : symbols) {
+                    Long at = current.changedAt.get(candidate);
+                    if (at != null && at > since) {
+                        changed.add(candidate);
+                    }
+                }
+                return changed;
+            }
+            if (symbols.contains(symbol)) {
+                changed.add(symbol);
+            }
+        }
+        return changed;
+    }
+    
+    private void index(View target, Stock stock) {
+        removedAt.remove(stock.getSymbol());
+        target.snapshots.put(stock.getSymbol(), stock);
+        for (Ranking ranking : Ranking.values()) {
+            target.indexes.get(ranking).put(stock.getSymbol(), ranking.score.applyAsDouble(stock));
+        }
+    }
+    
+    private static final class View {
+        private final NavigableMap<String, Stock> snapshots = new ConcurrentSkipListMap<>();
+        private final Map<Ranking, RankedIndex<String>> indexes = new EnumMap<>(Ranking.class);
+        // Each symbol's latest change keyed by its version. One entry per symbol keeps the log bounded, and the
+        // changes since any version are a tail of it.
+        private final NavigableMap<Long, String> changes = new ConcurrentSkipListMap<>();
+        private final Map<String, Long> changedAt = new ConcurrentHashMap<>();
+        // Versions before this predate the view, so its change log cannot answer for them
+        private final long baseVersion;
+        
+        View(long baseVersion) {
+            this.baseVersion = baseVersion;
+            for (Ranking ranking : Ranking.values()) {
+                indexes.put(ranking, new RankedIndex<>());
+            }
+        }
+    }
+}
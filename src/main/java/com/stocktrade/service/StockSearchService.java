@@ -0,0 +1,223 @@
+package com.stocktrade.service;
+
+import com.stocktrade.entity.Stock;
+import com.stocktrade.event.StockUniverseLoadedEvent;
+import com.stocktrade.event.StockUpdatedEvent;
+import com.stocktrade.repository.StockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+// Substring search over active symbols and company names without a table scan. Every 1-, 2- and 3-gram of
+// both fields maps to a sorted posting list of stock ids; longer queries intersect their rarest trigrams and
+// verify candidates. The index is immutable and rebuilt only when a stock is added, renamed or deactivated;
+// price data in results comes from StockRankingService's snapshots.
+@Service
+public class StockSearchService {
+    
+    private static final int GRAM = 3;
+    
+    private final StockRepository stockRepository;
+    private final StockRankingService stockRankingService;
+    
+    // Mutations are serialized on this lock; searches read the current index without locking
+    private final Object lock = new Object();
+    private final Map<String, String> companyNames = new TreeMap<>();
+    private volatile Index index = new Index(new TreeMap<>());
+    
+    @Autowired
+    public StockSearchService(StockRepository stockRepository, StockRankingService stockRankingService) {
+        this.stockRepository = stockRepository;
+        this.stockRankingService = stockRankingService;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        List<Stock> stocks = stockRepository.findByIsActiveTrue();
+        synchronized (lock) {
+            companyNames.clear();
+            for (Stock stock : stocks) {
+                companyNames.put(stock.getSymbol(), stock.getCompanyName());
+            }
+            index = new Index(companyNames);
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(readOnly = true)
+    public void onUniverseLoaded(StockUniverseLoadedEvent event) {
+        rebuild();
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockUpdated(StockUpdatedEvent event) {
+        synchronized (lock) {
+            boolean changed;
+            if (event.isActive()) {
+                changed = !Objects.equals(companyNames.put(event.getSymbol(), event.getCompanyName()), event.getCompanyName());
+            } else {
+                changed = companyNames.remove(event.getSymbol()) != null;
+            }
+            if (changed) {
+                index = new Index(companyNames);
+            }
+        }
+    }
+    
+    // Case-insensitive substring match on symbol or company name. Exact symbol first, then symbol prefix,
+    // company-name prefix, company-name word prefix and any other match, each tier by symbol.
+    public List<Stock> search(String query, int limit) {
+        List<String> symbols = index.search(query.toLowerCase(Locale.ROOT), limit);
+        List<Stock> stocks = new ArrayList<>(symbols.size());
+        for (String symbol : symbols) {
+            Stock stock = stockRankingService.getActiveStock(symbol);
+            if (stock != null) {
+                stocks.add(stock);
+            }
+        }
+        return stocks;
+    }
+    
+    private static final class Index {
+        private final String[] symbols;
+        private final String[] lowerSymbols;
+        private final String[] lowerNames;
+        private final Map<String, int[]> postings;
+        
+        Index(Map<String, String> companyNames) {
+            int size = companyNames.size();
+            symbols = new String[size];
+            lowerSymbols = new String[size];
+            lowerNames = new String[size];
+            
+            Map<String, List<Integer>> grams = new HashMap<>();
+            int id = 0;
+            for (Map.Entry<String, String> entry : companyNames.entrySet()) {
+                symbols[id] = entry.getKey();
+                lowerSymbols[id] = entry.getKey().toLowerCase(Locale.ROOT);
+                lowerNames[id] = entry.getValue() != null ? entry.getValue().toLowerCase(Locale.ROOT) : "";
+                addGrams(grams, lowerSymbols[id], id);
+                addGrams(grams, lowerNames[id], id);
+                id++;
+            }
+            
+            postings = new HashMap<>(grams.size() * 2);
+            for (Map.Entry<String, List<Integer>> entry : grams.entrySet()) {
+                postings.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+        
+        // Ids are added in increasing order, so skipping a repeat of the last id keeps each list sorted and unique
+        private static void addGrams(Map<String, List<Integer>> grams, String text, int id) {
+            for (int length = 1; length <= GRAM; length++) {
+                for (int start = 0; start + length <= text.length(); start++) {
+                    List<Integer> ids = grams.computeIfAbsent(text.substring(start, start + length), key -> new ArrayList<>());
+                    if (ids.isEmpty() || ids.get(ids.size() - 1) != id) {
+                        ids.add(id);
+                    }
+                }
+            }
+        }
+        
+        List<String> search(String query, int limit) {
+            int[] candidates = candidates(query);
+            List<int[]> matches = new ArrayList<>();
+            for (int id : candidates) {
+                int tier = tier(id, query);
+                if (tier >= 0) {
+                    matches.add(new int[] {tier, id});
+                }
+            }
+            // Ids follow symbol order, so (tier, id) orders each tier by symbol
+            matches.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+            
+            List<String> result = new ArrayList<>(Math.min(matches.size(), limit));
+            for (int i = 0; i < matches.size() && i < limit; i++) {
+                result.add(symbols[matches.get(i)[1]]);
+            }
+            return result;
+        }
+        
+        private int[] candidates(String query) {
+            if (query.isEmpty()) {
+                int[] all = new int[symbols.length];
+                Arrays.setAll(all, i -> i);
+                return all;
+            }
+            if (query.length() <= GRAM) {
+                return postings.getOrDefault(query, new int[0]);
+            }
+            
+            int[] rarest = null;
+            int[] second = null;
+            for (int start = 0; start + GRAM <= query.length(); start++) {
+                int[] ids = postings.get(query.substring(start, start + GRAM));
+                if (ids == null) {
+                    return new int[0];
+                }
+                if (rarest == null || ids.length < rarest.length) {
+                    second = rarest;
+                    rarest = ids;
+                } else if (second == null || ids.length < second.length) {
+                    second = ids;
+                }
+            }
+            return second == null ? rarest : intersect(rarest, second);
+        }
+        
+        private static int[] intersect(int[] a, int[] b) {
+            int[] result = new int[Math.min(a.length, b.length)];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    result[n++] = a[i];
+                    i++;
+                    j++;
+                }
+            }
+            return Arrays.copyOf(result, n);
+        }
+        
+        // -1 when the query is not a substring of either field, otherwise the rank tier
+        private int tier(int id, String query) {
+            String symbol = lowerSymbols[id];
+            String name = lowerNames[id];
+            if (symbol.equals(query)) {
+                return 0;
+            }
+            if (symbol.startsWith(query)) {
+                return 1;
+            }
+            int position = name.indexOf(query);
+            if (position == 0) {
+                return 2;
+            }
+            while (position > 0) {
+                if (!Character.isLetterOrDigit(name.charAt(position - 1))) {
+                    return 3;
+                }
+                position = name.indexOf(query, position + 1);
+            }
+            return symbol.contains(query) || name.contains(query) ? 4 : -1;
+        }
+    }
+}
@@ -1,27 +1,68 @@
 package com.stocktrade.service;
 
 import com.stocktrade.entity.Stock;
+import com.stocktrade.event.StockUpdatedEvent;
 import com.stocktrade.repository.StockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 @Transactional
 public class StockService {
     
+    private static final Logger log = LoggerFactory.getLogger(StockService.class);
+    
+    // Upstream quote requests in flight at once during a bulk refresh
+    private static final int REFRESH_CONCURRENCY = 8;
+    
     private final StockRepository stockRepository;
     private final StockDataService stockDataService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
+    private final Duration refreshDeadline;
+    private final Duration overviewInterval;
+    
+    private Boolean postgres;
     
     @Autowired
-    public StockService(StockRepository stockRepository, StockDataService stockDataService) {
+    public StockService(StockRepository stockRepository, StockDataService stockDataService,
+                       JdbcTemplate jdbcTemplate,
+                       ApplicationEventPublisher eventPublisher,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${stock.quotes.refresh-deadline-ms:3000}") long refreshDeadlineMillis,
+                       @Value("${stock.overview.refresh-days:30}") long overviewRefreshDays) {
         this.stockRepository = stockRepository;
         this.stockDataService = stockDataService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.refreshDeadline = Duration.ofMillis(refreshDeadlineMillis);
+        this.overviewInterval = Duration.ofDays(overviewRefreshDays);
     }
     
     public Stock createStock(String symbol, String companyName, BigDecimal currentPrice) {
@@ -32,7 +73,7 @@ public class StockService {
         }
         
         Stock stock = new Stock(upperSymbol, companyName, currentPrice);
-        return stockRepository.save(stock);
+        return afterStockSaved(stockRepository.saveAndFlush(stock));
     }
     
     public Stock createOrUpdateStock(Stock stock) {
@@ -49,12 +90,13 @@ public class StockService {
             existing.setMarketCap(stock.getMarketCap());
             existing.setPeRatio(stock.getPeRatio());
             existing.setDividendYield(stock.getDividendYield());
+            existing.setSector(stock.getSector());
             existing.setFiftyTwoWeekHigh(stock.getFiftyTwoWeekHigh());
             existing.setFiftyTwoWeekLow(stock.getFiftyTwoWeekLow());
             existing.setIsActive(stock.getIsActive());
-            return stockRepository.save(existing);
+            return afterStockSaved(stockRepository.saveAndFlush(existing));
         } else {
-            return stockRepository.save(stock);
+            return afterStockSaved(stockRepository.saveAndFlush(stock));
         }
     }
     
@@ -109,7 +151,7 @@ public class StockService {
             stock.setDayLow(newPrice);
         }
         
-        return stockRepository.save(stock);
+        return afterStockSaved(stockRepository.saveAndFlush(stock));
     }
     
     public Stock updateStockData(String symbol, BigDecimal price, BigDecimal previousClose, 
@@ -123,7 +165,7 @@ public class StockService {
         stock.setDayLow(dayLow);
         stock.setVolume(volume);
         
-        return stockRepository.save(stock);
+        return afterStockSaved(stockRepository.saveAndFlush(stock));
     }
     
     public Stock refreshStockData(String symbol) {
@@ -132,27 +174,45 @@ public class StockService {
         
         try {
             Stock updatedData = stockDataService.getStockData(symbol);
-            
-            stock.setCurrentPrice(updatedData.getCurrentPrice());
-            if (updatedData.getPreviousClose() != null) {
-                stock.setPreviousClose(updatedData.getPreviousClose());
-            }
-            if (updatedData.getDayHigh() != null) {
-                stock.setDayHigh(updatedData.getDayHigh());
-            }
-            if (updatedData.getDayLow() != null) {
-                stock.setDayLow(updatedData.getDayLow());
+            applyMarketData(stock, updatedData);
+            if (isOverviewDue(stock)) {
+                applyCompanyOverview(stock);
             }
-            if (updatedData.getVolume() != null) {
-                stock.setVolume(updatedData.getVolume());
-            }
-            
-            return stockRepository.save(stock);
+            return afterStockSaved(stockRepository.saveAndFlush(stock));
         } catch (Exception e) {
             throw new RuntimeException("Failed to refresh stock data for " + symbol, e);
         }
     }
     
+    // Fetches all quotes concurrently and applies whatever arrived within the deadline; symbols that failed
+    // or were too slow keep their stored data and are missing from the result. The wait on upstream runs
+    // outside any transaction so it holds no pooled connection; only the writes below get one.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Stock> refreshStocks(Collection<String> symbols) {
+        Map<String, Stock> fetched = Flux.fromIterable(symbols)
+                .flatMap(symbol -> stockDataService.fetchStockData(symbol)
+                        .map(data -> Map.entry(symbol, data))
+                        .onErrorResume(e -> {
+                            log.warn("Failed to refresh stock data for {}: {}", symbol, e.getMessage());
+                            return Mono.empty();
+                        }), REFRESH_CONCURRENCY)
+                .take(refreshDeadline)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
+        
+        Map<String, Stock> refreshed = new HashMap<>();
+        if (fetched == null || fetched.isEmpty()) {
+            return refreshed;
+        }
+        transaction.executeWithoutResult(status -> {
+            for (Stock stock : stockRepository.findBySymbolIn(fetched.keySet())) {
+                applyMarketData(stock, fetched.get(stock.getSymbol()));
+                refreshed.put(stock.getSymbol(), afterStockSaved(stockRepository.saveAndFlush(stock)));
+            }
+        });
+        return refreshed;
+    }
+    
     public List<Stock> refreshStaleStocks(int minutesThreshold) {
         LocalDateTime cutoffTime = LocalDateTime.now().minusMinutes(minutesThreshold);
         List<Stock> staleStocks = stockRepository.findStaleStocks(cutoffTime);
@@ -174,7 +234,7 @@ public class StockService {
                 .orElseThrow(() -> new IllegalArgumentException("Stock not found with symbol: " + symbol));
         
         stock.setIsActive(false);
-        return stockRepository.save(stock);
+        return afterStockSaved(stockRepository.saveAndFlush(stock));
     }
     
     public Stock reactivateStock(String symbol) {
@@ -182,7 +242,7 @@ public class StockService {
                 .orElseThrow(() -> new IllegalArgumentException("Stock not found with symbol: " + symbol));
         
         stock.setIsActive(true);
-        return stockRepository.save(stock);
+        return afterStockSaved(stockRepository.saveAndFlush(stock));
     }
     
     public boolean existsBySymbol(String symbol) {
@@ -214,6 +274,95 @@ public class StockService {
                 .orElse(true);
     }
     
+    private void applyMarketData(Stock stock, Stock updatedData) {
+        stock.setCurrentPrice(updatedData.getCurrentPrice());
+        if (updatedData.getPreviousClose() != null) {
+            stock.setPreviousClose(updatedData.getPreviousClose());
+        }
+        if (updatedData.getDayHigh() != null) {
+            stock.setDayHigh(updatedData.getDayHigh());
+        }
+        if (updatedData.getDayLow() != null) {
+            stock.setDayLow(updatedData.getDayLow());
+        }
+        if (updatedData.getVolume() != null) {
+            stock.setVolume(updatedData.getVolume());
+        }
+    }
+    
+    // Company profile changes rarely, so it is requested at most once per interval whatever the outcome; a
+    // symbol the provider has no sector for would otherwise cost an extra upstream call on every refresh
+    private boolean isOverviewDue(Stock stock) {
+        LocalDateTime fetchedAt = stock.getOverviewFetchedAt();
+        return fetchedAt == null || fetchedAt.isBefore(LocalDateTime.now().minus(overviewInterval));
+    }
+    
+    private void applyCompanyOverview(Stock stock) {
+        stock.setOverviewFetchedAt(LocalDateTime.now());
+        try {
+            Stock overview = stockDataService.getCompanyOverview(stock.getSymbol());
+            if (overview.getSector() != null) {
+                stock.setSector(overview.getSector());
+            }
+            if (overview.getMarketCap() != null) {
+                stock.setMarketCap(overview.getMarketCap());
+            }
+            if (overview.getPeRatio() != null) {
+                stock.setPeRatio(overview.getPeRatio());
+            }
+            if (overview.getDividendYield() != null) {
+                stock.setDividendYield(overview.getDividendYield());
+            }
+            if (overview.getFiftyTwoWeekHigh() != null) {
+                stock.setFiftyTwoWeekHigh(overview.getFiftyTwoWeekHigh());
+            }
+            if (overview.getFiftyTwoWeekLow() != null) {
+                stock.setFiftyTwoWeekLow(overview.getFiftyTwoWeekLow());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to fetch company overview for {}: {}", stock.getSymbol(), e.getMessage());
+        }
+    }
+    
+    private Stock afterStockSaved(Stock stock) {
+        eventPublisher.publishEvent(new StockUpdatedEvent(stock));
+        return stock;
+    }
+    
+    // Keeps one row per stock per day holding the latest price seen that day. Rolled up from the stocks table
+    // in one statement rather than written per update, so a trade that refreshes a stale quote never touches it.
+    // Starting from yesterday catches the final prices of stocks last updated just before midnight.
+    @Scheduled(fixedDelayString = "${stock.history.rollup-interval-ms:60000}")
+    public void recordDailyCloses() {
+        Timestamp since = Timestamp.valueOf(LocalDate.now().minusDays(1).atStartOfDay());
+        if (isPostgres()) {
+            jdbcTemplate.update("INSERT INTO price_history (stock_id, trade_date, close_price, recorded_at) "
+                    + "SELECT id, CAST(last_updated AS DATE), current_price, last_updated FROM stocks "
+                    + "WHERE current_price IS NOT NULL AND last_updated >= ? "
+                    + "ON CONFLICT (stock_id, trade_date) DO UPDATE "
+                    + "SET close_price = EXCLUDED.close_price, recorded_at = EXCLUDED.recorded_at "
+                    + "WHERE price_history.recorded_at < EXCLUDED.recorded_at", since);
+        } else {
+            jdbcTemplate.update("MERGE INTO price_history p USING (SELECT id AS stock_id, "
+                    + "CAST(last_updated AS DATE) AS trade_date, current_price AS close_price, "
+                    + "last_updated AS recorded_at FROM stocks WHERE current_price IS NOT NULL AND last_updated >= ?) s "
+                    + "ON p.stock_id = s.stock_id AND p.trade_date = s.trade_date "
+                    + "WHEN MATCHED AND p.recorded_at < s.recorded_at THEN "
+                    + "UPDATE SET close_price = s.close_price, recorded_at = s.recorded_at "
+                    + "WHEN NOT MATCHED THEN INSERT (stock_id, trade_date, close_price, recorded_at) "
+                    + "VALUES (s.stock_id, s.trade_date, s.close_price, s.recorded_at)", since);
+        }
+    }
+    
+    private boolean isPostgres() {
+        if (postgres == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(product);
+        }
+        return postgres;
+    }
+    
     private boolean isNewTradingDay(LocalDateTime lastUpdated) {
         LocalDateTime now = LocalDateTime.now();
         return lastUpdated.toLocalDate().isBefore(now.toLocalDate());
@@ -0,0 +1,685 @@
+package com.stocktrade.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stocktrade.event.StockUniverseLoadedEvent;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Loads the stock universe from a listing file in one transaction. Existing rows are read once, the file is
+// streamed and compared against them, and only new or changed rows are written: through COPY into a temporary
+// table and one upsert on PostgreSQL, through JDBC batches elsewhere. Active symbols missing from the file are
+// deactivated. Views built from stock rows rebuild once on StockUniverseLoadedEvent.
+@Service
+public class StockUniverseService {
+    
+    public enum Format {
+        CSV, JSON
+    }
+    
+    private static final Logger log = LoggerFactory.getLogger(StockUniverseService.class);
+    
+    private static final int BATCH_SIZE = 1000;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_ERRORS = 20;
+    
+    private static final String SELECT_EXISTING_SQL =
+            "SELECT symbol, company_name, current_price, previous_close, market_cap, sector, is_active FROM stocks";
+    private static final String CREATE_STAGING_SQL =
+            "CREATE TEMP TABLE stock_import (symbol VARCHAR(10) NOT NULL, company_name VARCHAR(200) NOT NULL, " +
+            "current_price DECIMAL(19,2) NOT NULL, previous_close DECIMAL(19,2), market_cap BIGINT, sector VARCHAR(100)) " +
+            "ON COMMIT DROP";
+    private static final String COPY_SQL =
+            "COPY stock_import (symbol, company_name, current_price, previous_close, market_cap, sector) " +
+            "FROM STDIN WITH (FORMAT csv)";
+    private static final String UPSERT_SQL =
+            "INSERT INTO stocks (symbol, company_name, current_price, previous_close, market_cap, sector, is_active, " +
+            "created_at, last_updated) " +
+            "SELECT symbol, company_name, current_price, previous_close, market_cap, sector, TRUE, ?, ? FROM stock_import " +
+            "ON CONFLICT (symbol) DO UPDATE SET company_name = EXCLUDED.company_name, " +
+            "current_price = EXCLUDED.current_price, previous_close = EXCLUDED.previous_close, " +
+            "market_cap = EXCLUDED.market_cap, sector = EXCLUDED.sector, is_active = TRUE, " +
+            "last_updated = EXCLUDED.last_updated";
+    private static final String INSERT_SQL =
+            "INSERT INTO stocks (symbol, company_name, current_price, previous_close, market_cap, sector, is_active, " +
+            "created_at, last_updated) VALUES (?, ?, ?, ?, ?, ?, TRUE, ?, ?)";
+    private static final String UPDATE_SQL =
+            "UPDATE stocks SET company_name = ?, current_price = ?, previous_close = ?, market_cap = ?, sector = ?, " +
+            "is_active = TRUE, last_updated = ? WHERE symbol = ?";
+    private static final String DEACTIVATE_SQL =
+            "UPDATE stocks SET is_active = FALSE, last_updated = ? WHERE symbol = ?";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String universeFile;
+    
+    @Autowired
+    public StockUniverseService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${stock.universe.file:}") String universeFile) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.universeFile = universeFile;
+    }
+    
+    // Rows carry symbol and companyName, optionally currentPrice (required for new symbols), previousClose,
+    // marketCap and sector; omitted fields keep their stored values. Bad rows are skipped and reported, while
+    // a malformed file fails the whole import.
+    public ImportResult importUniverse(InputStream in, Format format, boolean deactivateMissing) {
+        long started = System.nanoTime();
+        ImportResult result = transaction.execute(status -> jdbcTemplate.execute(
+                (ConnectionCallback<ImportResult>) connection -> load(connection, in, format, deactivateMissing)));
+        result.elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        
+        eventPublisher.publishEvent(new StockUniverseLoadedEvent(result.inserted, result.updated, result.deactivated));
+        log.info("Stock universe import: {} inserted, {} updated, {} unchanged, {} deactivated, {} rejected in {} ms",
+                result.inserted, result.updated, result.unchanged, result.deactivated, result.rejected, result.elapsedMillis);
+        return result;
+    }
+    
+    @Scheduled(cron = "${stock.universe.cron:0 0 2 * * *}")
+    public void importConfiguredFile() {
+        if (!StringUtils.hasText(universeFile)) {
+            return;
+        }
+        Path path = Paths.get(universeFile);
+        Format format = path.toString().toLowerCase(Locale.ROOT).endsWith(".json") ? Format.JSON : Format.CSV;
+        try (InputStream in = Files.newInputStream(path)) {
+            importUniverse(in, format, true);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Stock universe import from {} failed: {}", path, e.getMessage());
+        }
+    }
+    
+    private ImportResult load(Connection connection, InputStream in, Format format, boolean deactivateMissing)
+            throws SQLException {
+        Map<String, Listing> existing = loadExisting(connection);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        boolean postgres = "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        ImportResult result = new ImportResult();
+        
+        try (ListingReader reader = format == Format.JSON ? new JsonListingReader(in) : new CsvListingReader(in);
+             UniverseWriter writer = postgres ? new CopyWriter(connection, now) : new BatchWriter(connection, now)) {
+            Set<String> seen = new HashSet<>();
+            Map<String, String> fields;
+            while ((fields = reader.next()) != null) {
+                try {
+                    // The symbol counts as present even when the rest of its row is rejected, so a bad row
+                    // never deactivates a listed stock
+                    String symbol = parseSymbol(fields.get("symbol"));
+                    if (!seen.add(symbol)) {
+                        throw new IllegalArgumentException("duplicate symbol " + symbol);
+                    }
+                    Listing listing = parseListing(symbol, fields);
+                    Listing current = existing.get(symbol);
+                    if (current == null) {
+                        if (listing.currentPrice == null) {
+                            throw new IllegalArgumentException("currentPrice is required for new symbol " + symbol);
+                        }
+                        writer.insert(listing);
+                        result.inserted++;
+                    } else {
+                        Listing merged = listing.over(current);
+                        if (!current.active || !merged.sameAs(current)) {
+                            writer.update(merged);
+                            result.updated++;
+                        } else {
+                            result.unchanged++;
+                        }
+                    }
+                } catch (IllegalArgumentException e) {
+                    result.reject(reader.getRow(), e.getMessage());
+                }
+            }
+            
+            if (deactivateMissing) {
+                if (seen.isEmpty()) {
+                    throw new IllegalArgumentException("The file lists no symbols; refusing to deactivate every stock");
+                }
+                for (Listing current : existing.values()) {
+                    if (current.active && !seen.contains(current.symbol)) {
+                        writer.deactivate(current.symbol);
+                        result.deactivated++;
+                    }
+                }
+            }
+            writer.finish();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("The JSON file is malformed: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+    
+    private static Map<String, Listing> loadExisting(Connection connection) throws SQLException {
+        Map<String, Listing> existing = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(SELECT_EXISTING_SQL)) {
+            while (rs.next()) {
+                // wasNull() reports on the last column read, so it must follow getLong directly
+                long marketCapValue = rs.getLong(5);
+                Long marketCap = rs.wasNull() ? null : marketCapValue;
+                Listing listing = new Listing(rs.getString(1), rs.getString(2), rs.getBigDecimal(3), rs.getBigDecimal(4),
+                        marketCap, rs.getString(6), rs.getBoolean(7));
+                existing.put(listing.symbol, listing);
+            }
+        }
+        return existing;
+    }
+    
+    private static String parseSymbol(String value) {
+        if (!StringUtils.hasText(value)) {
+            throw new IllegalArgumentException("symbol is required");
+        }
+        String symbol = value.trim().toUpperCase(Locale.ROOT);
+        if (symbol.length() > 10) {
+            throw new IllegalArgumentException("symbol " + symbol + " is longer than 10 characters");
+        }
+        return symbol;
+    }
+    
+    private static Listing parseListing(String symbol, Map<String, String> fields) {
+        String companyName = fields.get("companyname");
+        if (!StringUtils.hasText(companyName)) {
+            throw new IllegalArgumentException("companyName is required for " + symbol);
+        }
+        companyName = companyName.trim();
+        if (companyName.length() > 200) {
+            throw new IllegalArgumentException("companyName of " + symbol + " is longer than 200 characters");
+        }
+        String sector = StringUtils.hasText(fields.get("sector")) ? fields.get("sector").trim() : null;
+        if (sector != null && sector.length() > 100) {
+            throw new IllegalArgumentException("sector of " + symbol + " is longer than 100 characters");
+        }
+        BigDecimal marketCap = parseDecimal(fields.get("marketcap"), "marketCap", symbol);
+        return new Listing(symbol, companyName,
+                parsePrice(fields.get("currentprice"), "currentPrice", symbol),
+                parsePrice(fields.get("previousclose"), "previousClose", symbol),
+                marketCap != null ? marketCap.setScale(0, RoundingMode.HALF_UP).longValueExact() : null,
+                sector, true);
+    }
+    
+    private static BigDecimal parsePrice(String value, String field, String symbol) {
+        BigDecimal price = parseDecimal(value, field, symbol);
+        if (price == null) {
+            return null;
+        }
+        if (price.signum() <= 0) {
+            throw new IllegalArgumentException(field + " of " + symbol + " must be positive");
+        }
+        return price.setScale(2, RoundingMode.HALF_UP);
+    }
+    
+    private static BigDecimal parseDecimal(String value, String field, String symbol) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " of " + symbol + " is not a number: " + value);
+        }
+    }
+    
+    // Field names are matched without case, spaces or underscores, so company_name and companyName both work
+    private static String fieldKey(String name) {
+        return name.trim().replace("_", "").replace(" ", "").toLowerCase(Locale.ROOT);
+    }
+    
+    private static final class Listing {
+        private final String symbol;
+        private final String companyName;
+        private final BigDecimal currentPrice;
+        private final BigDecimal previousClose;
+        private final Long marketCap;
+        private final String sector;
+        private final boolean active;
+        
+        Listing(String symbol, String companyName, BigDecimal currentPrice, BigDecimal previousClose,
+                Long marketCap, String sector, boolean active) {
+            this.symbol = symbol;
+            this.companyName = companyName;
+            this.currentPrice = currentPrice;
+            this.previousClose = previousClose;
+            this.marketCap = marketCap;
+            this.sector = sector;
+            this.active = active;
+        }
+        
+        // Fields this listing leaves out keep the stored values
+        Listing over(Listing stored) {
+            return new Listing(symbol, companyName,
+                    currentPrice != null ? currentPrice : stored.currentPrice,
+                    previousClose != null ? previousClose : stored.previousClose,
+                    marketCap != null ? marketCap : stored.marketCap,
+                    sector != null ? sector : stored.sector,
+                    true);
+        }
+        
+        boolean sameAs(Listing other) {
+            return companyName.equals(other.companyName)
+                    && sameAmount(currentPrice, other.currentPrice)
+                    && sameAmount(previousClose, other.previousClose)
+                    && Objects.equals(marketCap, other.marketCap)
+                    && Objects.equals(sector, other.sector);
+        }
+        
+        private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+            return a == null ? b == null : b != null && a.compareTo(b) == 0;
+        }
+    }
+    
+    // Yields one row at a time as normalized field name -> text, null at the end of the file
+    private interface ListingReader extends Closeable {
+        Map<String, String> next() throws IOException;
+        
+        int getRow();
+    }
+    
+    private static final class CsvListingReader implements ListingReader {
+        private final BufferedReader reader;
+        private final String[] header;
+        private int row;
+        
+        CsvListingReader(InputStream in) throws IOException {
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IllegalArgumentException("The CSV file is empty");
+            }
+            if (line.startsWith("\uFEFF")) {
+                line = line.substring(1);
+            }
+            List<String> names = splitCsvLine(line);
+            this.header = new String[names.size()];
+            for (int i = 0; i < header.length; i++) {
+                header[i] = fieldKey(names.get(i));
+            }
+            if (!names.isEmpty() && !List.of(header).contains("symbol")) {
+                throw new IllegalArgumentException("The CSV header has no symbol column");
+            }
+        }
+        
+        @Override
+        public Map<String, String> next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                row++;
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+            
+            List<String> values = splitCsvLine(line);
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < header.length && i < values.size(); i++) {
+                fields.put(header[i], values.get(i));
+            }
+            return fields;
+        }
+        
+        @Override
+        public int getRow() {
+            return row;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+        
+        // RFC 4180 fields within one line: quoted fields may hold commas and doubled quotes
+        private static List<String> splitCsvLine(String line) {
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        value.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        value.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(value.toString());
+                    value.setLength(0);
+                } else {
+                    value.append(c);
+                }
+            }
+            values.add(value.toString());
+            return values;
+        }
+    }
+    
+    // A top-level array of objects, read one object at a time
+    private final class JsonListingReader implements ListingReader {
+        private final JsonParser parser;
+        private int row;
+        
+        JsonListingReader(InputStream in) throws IOException {
+            this.parser = objectMapper.getFactory().createParser(in);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("The JSON file must be an array of stock objects");
+            }
+        }
+        
+        @Override
+        public Map<String, String> next() throws IOException {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY || token == null) {
+                return null;
+            }
+            row++;
+            if (token != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Element " + row + " of the JSON array is not an object");
+            }
+            JsonNode node = parser.readValueAsTree();
+            Map<String, String> fields = new HashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> entries = node.fields();
+            while (entries.hasNext()) {
+                Map.Entry<String, JsonNode> entry = entries.next();
+                if (entry.getValue().isValueNode() && !entry.getValue().isNull()) {
+                    fields.put(fieldKey(entry.getKey()), entry.getValue().asText());
+                }
+            }
+            return fields;
+        }
+        
+        @Override
+        public int getRow() {
+            return row;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+    
+    private interface UniverseWriter extends AutoCloseable {
+        void insert(Listing listing) throws SQLException;
+        
+        void update(Listing listing) throws SQLException;
+        
+        void deactivate(String symbol) throws SQLException;
+        
+        void finish() throws SQLException;
+        
+        @Override
+        void close() throws SQLException;
+    }
+    
+    // New and changed rows are streamed into a session-local staging table with COPY and merged with one
+    // upsert. Deactivations are few and run as a batch once the copy has ended.
+    private static final class CopyWriter implements UniverseWriter {
+        private final Connection connection;
+        private final Timestamp now;
+        private final CopyIn copyIn;
+        private final StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE);
+        private final List<String> deactivations = new ArrayList<>();
+        private int staged;
+        
+        CopyWriter(Connection connection, Timestamp now) throws SQLException {
+            this.connection = connection;
+            this.now = now;
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING_SQL);
+            }
+            this.copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        }
+        
+        @Override
+        public void insert(Listing listing) throws SQLException {
+            stage(listing);
+        }
+        
+        @Override
+        public void update(Listing listing) throws SQLException {
+            stage(listing);
+        }
+        
+        @Override
+        public void deactivate(String symbol) {
+            deactivations.add(symbol);
+        }
+        
+        @Override
+        public void finish() throws SQLException {
+            flushBuffer();
+            copyIn.endCopy();
+            if (staged > 0) {
+                try (PreparedStatement statement = connection.prepareStatement(UPSERT_SQL)) {
+                    statement.setTimestamp(1, now);
+                    statement.setTimestamp(2, now);
+                    statement.executeUpdate();
+                }
+            }
+            if (!deactivations.isEmpty()) {
+                try (PreparedStatement statement = connection.prepareStatement(DEACTIVATE_SQL)) {
+                    for (String symbol : deactivations) {
+                        statement.setTimestamp(1, now);
+                        statement.setString(2, symbol);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            }
+        }
+        
+        @Override
+        public void close() throws SQLException {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+        
+        private void stage(Listing listing) throws SQLException {
+            appendCsv(listing.symbol).append(',');
+            appendCsv(listing.companyName).append(',');
+            buffer.append(listing.currentPrice.toPlainString()).append(',');
+            buffer.append(listing.previousClose != null ? listing.previousClose.toPlainString() : "").append(',');
+            buffer.append(listing.marketCap != null ? listing.marketCap.toString() : "").append(',');
+            if (listing.sector != null) {
+                appendCsv(listing.sector);
+            }
+            buffer.append('\n');
+            staged++;
+            if (buffer.length() >= COPY_BUFFER_SIZE) {
+                flushBuffer();
+            }
+        }
+        
+        // Always quoted, so an empty string is never read back as NULL
+        private StringBuilder appendCsv(String value) {
+            return buffer.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+        
+        private void flushBuffer() throws SQLException {
+            if (buffer.length() > 0) {
+                byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+                buffer.setLength(0);
+            }
+        }
+    }
+    
+    private static final class BatchWriter implements UniverseWriter {
+        private final Timestamp now;
+        private final Batch inserts;
+        private final Batch updates;
+        private final Batch deactivations;
+        
+        BatchWriter(Connection connection, Timestamp now) throws SQLException {
+            this.now = now;
+            this.inserts = new Batch(connection.prepareStatement(INSERT_SQL));
+            this.updates = new Batch(connection.prepareStatement(UPDATE_SQL));
+            this.deactivations = new Batch(connection.prepareStatement(DEACTIVATE_SQL));
+        }
+        
+        @Override
+        public void insert(Listing listing) throws SQLException {
+            PreparedStatement statement = inserts.statement;
+            statement.setString(1, listing.symbol);
+            statement.setString(2, listing.companyName);
+            statement.setBigDecimal(3, listing.currentPrice);
+            statement.setBigDecimal(4, listing.previousClose);
+            setLong(statement, 5, listing.marketCap);
+            statement.setString(6, listing.sector);
+            statement.setTimestamp(7, now);
+            statement.setTimestamp(8, now);
+            inserts.add();
+        }
+        
+        @Override
+        public void update(Listing listing) throws SQLException {
+            PreparedStatement statement = updates.statement;
+            statement.setString(1, listing.companyName);
+            statement.setBigDecimal(2, listing.currentPrice);
+            statement.setBigDecimal(3, listing.previousClose);
+            setLong(statement, 4, listing.marketCap);
+            statement.setString(5, listing.sector);
+            statement.setTimestamp(6, now);
+            statement.setString(7, listing.symbol);
+            updates.add();
+        }
+        
+        @Override
+        public void deactivate(String symbol) throws SQLException {
+            deactivations.statement.setTimestamp(1, now);
+            deactivations.statement.setString(2, symbol);
+            deactivations.add();
+        }
+        
+        @Override
+        public void finish() throws SQLException {
+            inserts.execute();
+            updates.execute();
+            deactivations.execute();
+        }
+        
+        @Override
+        public void close() throws SQLException {
+            inserts.statement.close();
+            updates.statement.close();
+            deactivations.statement.close();
+        }
+        
+        private static void setLong(PreparedStatement statement, int index, Long value) throws SQLException {
+            if (value != null) {
+                statement.setLong(index, value);
+            } else {
+                statement.setNull(index, Types.BIGINT);
+            }
+        }
+        
+        private static final class Batch {
+            private final PreparedStatement statement;
+            private int size;
+            
+            Batch(PreparedStatement statement) {
+                this.statement = statement;
+            }
+            
+            void add() throws SQLException {
+                statement.addBatch();
+                if (++size == BATCH_SIZE) {
+                    execute();
+                }
+            }
+            
+            void execute() throws SQLException {
+                if (size > 0) {
+                    statement.executeBatch();
+                    size = 0;
+                }
+            }
+        }
+    }
+    
+    public static class ImportResult {
+        private int inserted;
+        private int updated;
+        private int unchanged;
+        private int deactivated;
+        private int rejected;
+        private final List<String> errors = new ArrayList<>();
+        private long elapsedMillis;
+        
+        // Only the first few errors are kept; rejected counts them all
+        void reject(int row, String message) {
+            rejected++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add("Row " + row + ": " + message);
+            }
+        }
+        
+        // Getters
+        public int getInserted() { return inserted; }
+        public int getUpdated() { return updated; }
+        public int getUnchanged() { return unchanged; }
+        public int getDeactivated() { return deactivated; }
+        public int getRejected() { return rejected; }
+        public List<String> getErrors() { return errors; }
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+}
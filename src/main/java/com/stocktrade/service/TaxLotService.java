@@ -0,0 +1,99 @@
+package com.stocktrade.service;
+
+import com.stocktrade.entity.RealizedGain;
+import com.stocktrade.entity.Stock;
+import com.stocktrade.entity.TaxLot;
+import com.stocktrade.entity.User;
+import com.stocktrade.repository.RealizedGainRepository;
+import com.stocktrade.repository.TaxLotRepository;
+import com.stocktrade.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@Transactional
+public class TaxLotService {
+    
+    private final TaxLotRepository taxLotRepository;
+    private final RealizedGainRepository realizedGainRepository;
+    private final UserRepository userRepository;
+    
+    @Autowired
+    public TaxLotService(TaxLotRepository taxLotRepository,
+                        RealizedGainRepository realizedGainRepository,
+                        UserRepository userRepository) {
+        this.taxLotRepository = taxLotRepository;
+        this.realizedGainRepository = realizedGainRepository;
+        this.userRepository = userRepository;
+    }
+    
+    public TaxLot openLot(User user, Stock stock, Integer quantity, BigDecimal costPerShare, LocalDateTime acquiredAt) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        return taxLotRepository.save(new TaxLot(user, stock, quantity, costPerShare, acquiredAt));
+    }
+    
+    public BigDecimal closeLots(User user, Stock stock, Integer quantity, BigDecimal salePrice,
+                                BigDecimal fallbackCostPerShare) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        
+        List<TaxLot> lots = findOpenLots(user.getId(), stock.getId(), user.getCostBasisMethod());
+        int remaining = quantity;
+        BigDecimal costBasis = BigDecimal.ZERO;
+        
+        for (TaxLot lot : lots) {
+            if (remaining == 0) {
+                break;
+            }
+            int taken = lot.consume(remaining);
+            costBasis = costBasis.add(lot.getCostPerShare().multiply(BigDecimal.valueOf(taken)));
+            remaining -= taken;
+        }
+        taxLotRepository.saveAll(lots);
+        
+        // Shares bought before lot tracking existed have no lots; cost them at the average cost
+        if (remaining > 0) {
+            costBasis = costBasis.add(fallbackCostPerShare.multiply(BigDecimal.valueOf(remaining)));
+        }
+        
+        BigDecimal proceeds = salePrice.multiply(BigDecimal.valueOf(quantity));
+        BigDecimal gainLoss = proceeds.subtract(costBasis);
+        
+        RealizedGain realizedGain = realizedGainRepository.findByUserIdAndStockId(user.getId(), stock.getId())
+                .orElseGet(() -> new RealizedGain(user, stock));
+        realizedGain.recordSale(quantity, proceeds, costBasis);
+        realizedGainRepository.save(realizedGain);
+        
+        user.recordRealizedSale(gainLoss, costBasis);
+        userRepository.save(user);
+        
+        return gainLoss;
+    }
+    
+    public List<TaxLot> getOpenLots(Long userId, String stockSymbol) {
+        return taxLotRepository.findOpenLotsBySymbol(userId, stockSymbol.toUpperCase());
+    }
+    
+    public List<RealizedGain> getRealizedGains(Long userId) {
+        return realizedGainRepository.findByUserIdOrderBySymbol(userId);
+    }
+    
+    private List<TaxLot> findOpenLots(Long userId, Long stockId, User.CostBasisMethod method) {
+        switch (method != null ? method : User.CostBasisMethod.FIFO) {
+            case LIFO:
+                return taxLotRepository.findOpenLotsNewestFirst(userId, stockId);
+            case HIFO:
+                return taxLotRepository.findOpenLotsHighestCostFirst(userId, stockId);
+            default:
+                return taxLotRepository.findOpenLotsOldestFirst(userId, stockId);
+        }
+    }
+}
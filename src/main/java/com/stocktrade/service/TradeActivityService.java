@@ -0,0 +1,184 @@
+package com.stocktrade.service;
+
+import com.stocktrade.event.TradeExecutedEvent;
+import com.stocktrade.repository.TradeRepository;
+import com.stocktrade.util.RollingWindow;
+import com.stocktrade.util.SlidingHeavyHitters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Service
+public class TradeActivityService {
+    
+    public enum Window {
+        ONE_MINUTE("1m", Duration.ofMinutes(1)),
+        FIVE_MINUTES("5m", Duration.ofMinutes(5)),
+        ONE_HOUR("1h", Duration.ofHours(1)),
+        ONE_DAY("1d", Duration.ofDays(1));
+        
+        private final String label;
+        private final Duration span;
+        
+        Window(String label, Duration span) {
+            this.label = label;
+            this.span = span;
+        }
+        
+        public String getLabel() { return label; }
+        public Duration getSpan() { return span; }
+    }
+    
+    private static final int BUCKETS_PER_WINDOW = 60;
+    
+    // Most-traded ranking: one-minute buckets over the last hour, 64 leaders kept per bucket
+    public static final Duration MOST_TRADED_SPAN = Duration.ofHours(1);
+    private static final int MOST_TRADED_LEADERS = 64;
+    private static final int SKETCH_WIDTH = 512;
+    private static final int SKETCH_DEPTH = 4;
+    
+    private final TradeRepository tradeRepository;
+    private final Map<String, RollingWindow[]> windowsBySymbol = new ConcurrentHashMap<>();
+    private final SlidingHeavyHitters tradesBySymbol = newHeavyHitters();
+    private final SlidingHeavyHitters volumeBySymbol = newHeavyHitters();
+    
+    @Autowired
+    public TradeActivityService(TradeRepository tradeRepository) {
+        this.tradeRepository = tradeRepository;
+    }
+    
+    // Replays the last day of trades so the windows are warm after a restart
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        windowsBySymbol.clear();
+        tradesBySymbol.clear();
+        volumeBySymbol.clear();
+        LocalDateTime since = LocalDateTime.now().minus(Window.ONE_DAY.getSpan());
+        for (Object[] row : tradeRepository.findCompletedTradeTicksSince(since)) {
+            record((String) row[0], (Integer) row[1], (BigDecimal) row[2], (LocalDateTime) row[3]);
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTradeExecuted(TradeExecutedEvent event) {
+        record(event.getSymbol(), event.getQuantity(), event.getPrice(), event.getExecutedAt());
+    }
+    
+    public WindowStats getStats(String symbol, Window window) {
+        RollingWindow[] windows = windowsBySymbol.get(symbol.toUpperCase());
+        if (windows == null) {
+            return WindowStats.EMPTY;
+        }
+        return new WindowStats(windows[window.ordinal()].totals(System.currentTimeMillis()));
+    }
+    
+    public Map<String, WindowStats> getAllWindowStats(String symbol) {
+        Map<String, WindowStats> stats = new LinkedHashMap<>();
+        for (Window window : Window.values()) {
+            stats.put(window.getLabel(), getStats(symbol, window));
+        }
+        return stats;
+    }
+    
+    // Approximate, answered from memory; the window is rounded up to whole minutes and capped at an hour
+    public List<SymbolActivity> getMostTraded(Duration window, int limit) {
+        long now = System.currentTimeMillis();
+        return tradesBySymbol.top(now, window, limit).stream()
+                .map(entry -> new SymbolActivity(entry.getKey(), entry.getCount(),
+                        volumeBySymbol.estimate(now, window, entry.getKey())))
+                .collect(Collectors.toList());
+    }
+    
+    public long countActiveSymbols(Window window) {
+        long now = System.currentTimeMillis();
+        return windowsBySymbol.values().stream()
+                .filter(windows -> windows[window.ordinal()].totals(now).getCount() > 0)
+                .count();
+    }
+    
+    private void record(String symbol, Integer quantity, BigDecimal price, LocalDateTime executedAt) {
+        if (quantity == null || price == null || executedAt == null) {
+            return;
+        }
+        RollingWindow[] windows = windowsBySymbol.computeIfAbsent(symbol, key -> newWindows());
+        long timestamp = executedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        double notional = price.doubleValue() * quantity;
+        for (RollingWindow window : windows) {
+            window.record(timestamp, quantity, notional);
+        }
+        tradesBySymbol.add(timestamp, symbol, 1);
+        volumeBySymbol.add(timestamp, symbol, quantity);
+    }
+    
+    private RollingWindow[] newWindows() {
+        Window[] definitions = Window.values();
+        RollingWindow[] windows = new RollingWindow[definitions.length];
+        for (Window window : definitions) {
+            windows[window.ordinal()] = new RollingWindow(window.getSpan(), BUCKETS_PER_WINDOW);
+        }
+        return windows;
+    }
+    
+    private static SlidingHeavyHitters newHeavyHitters() {
+        return new SlidingHeavyHitters(MOST_TRADED_SPAN, BUCKETS_PER_WINDOW, MOST_TRADED_LEADERS, SKETCH_WIDTH, SKETCH_DEPTH);
+    }
+    
+    public static class SymbolActivity {
+        private final String symbol;
+        private final long tradeCount;
+        private final long volume;
+        
+        public SymbolActivity(String symbol, long tradeCount, long volume) {
+            this.symbol = symbol;
+            this.tradeCount = tradeCount;
+            this.volume = volume;
+        }
+        
+        // Getters
+        public String getSymbol() { return symbol; }
+        public long getTradeCount() { return tradeCount; }
+        public long getVolume() { return volume; }
+    }
+    
+    public static class WindowStats {
+        static final WindowStats EMPTY = new WindowStats(null, 0, 0);
+        
+        private final BigDecimal vwap;
+        private final long volume;
+        private final long tradeCount;
+        
+        WindowStats(RollingWindow.Totals totals) {
+            this(totals.getVolume() > 0
+                         ? BigDecimal.valueOf(totals.getVwap()).setScale(4, RoundingMode.HALF_UP)
+                         : null,
+                 totals.getVolume(),
+                 totals.getCount());
+        }
+        
+        public WindowStats(BigDecimal vwap, long volume, long tradeCount) {
+            this.vwap = vwap;
+            this.volume = volume;
+            this.tradeCount = tradeCount;
+        }
+        
+        // Getters
+        public BigDecimal getVwap() { return vwap; }
+        public long getVolume() { return volume; }
+        public long getTradeCount() { return tradeCount; }
+    }
+}
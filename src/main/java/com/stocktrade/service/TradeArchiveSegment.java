@@ -0,0 +1,347 @@
+package com.stocktrade.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// One immutable archive file holding the trades of a user-id range for one month, stored column by column.
+// Rows are sorted by (user, executed_at, id). Numbers are zigzag varints: ids and executed_at are deltas within
+// each user's run, created_at is relative to executed_at, total_amount is stored as its difference from
+// price * quantity + commission (normally zero) and symbols are codes into a per-file dictionary.
+// A fixed-width user index records where each user's run starts in every column, so a lookup decodes only
+// that user's rows straight from the memory-mapped file.
+final class TradeArchiveSegment {
+    
+    private static final int MAGIC = 0x54434131; // "TCA1"
+    
+    private static final int ID = 0;
+    private static final int EXECUTED_AT = 1;
+    private static final int CREATED_AT = 2;
+    private static final int SYMBOL = 3;
+    private static final int TYPE_STATUS = 4;
+    private static final int QUANTITY = 5;
+    private static final int PRICE = 6;
+    private static final int TOTAL = 7;
+    private static final int COMMISSION = 8;
+    private static final int NOTES = 9;
+    private static final int COLUMNS = 10;
+    
+    // userId, rowCount, min and max executed_at, then one offset per column
+    private static final int INDEX_ENTRY_BYTES = 8 + 4 + 8 + 8 + 4 * COLUMNS;
+    
+    private static final Comparator<Row> ROW_ORDER = Comparator.comparingLong((Row row) -> row.userId)
+            .thenComparingLong(row -> row.executedAtMicros)
+            .thenComparingLong(row -> row.id);
+    
+    private final MappedByteBuffer buffer;
+    private final int rowCount;
+    private final int userCount;
+    private final long baseMicros;
+    private final long[] stockIds;
+    private final String[] symbols;
+    private final int indexStart;
+    private final int[] columnStarts = new int[COLUMNS];
+    
+    private TradeArchiveSegment(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        ByteBuffer header = buffer.duplicate();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a trade archive segment");
+        }
+        this.rowCount = header.getInt();
+        this.userCount = header.getInt();
+        this.baseMicros = header.getLong();
+        
+        int dictionarySize = header.getInt();
+        this.stockIds = new long[dictionarySize];
+        this.symbols = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            stockIds[i] = header.getLong();
+            byte[] symbol = new byte[header.getShort()];
+            header.get(symbol);
+            symbols[i] = new String(symbol, StandardCharsets.UTF_8);
+        }
+        
+        int[] columnLengths = new int[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            columnLengths[i] = header.getInt();
+        }
+        this.indexStart = header.position();
+        int position = indexStart + userCount * INDEX_ENTRY_BYTES;
+        for (int i = 0; i < COLUMNS; i++) {
+            columnStarts[i] = position;
+            position += columnLengths[i];
+        }
+    }
+    
+    static TradeArchiveSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new TradeArchiveSegment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    int getRowCount() { return rowCount; }
+    
+    // Rows of one user with executed_at in [fromMicros, toMicros], oldest first
+    List<Row> read(long userId, long fromMicros, long toMicros) {
+        int entry = findUser(userId);
+        if (entry < 0) {
+            return new ArrayList<>();
+        }
+        int entryStart = indexStart + entry * INDEX_ENTRY_BYTES;
+        if (buffer.getLong(entryStart + 12) > toMicros || buffer.getLong(entryStart + 20) < fromMicros) {
+            return new ArrayList<>();
+        }
+        return decodeRun(entryStart, fromMicros, toMicros);
+    }
+    
+    List<Row> readAll() {
+        List<Row> rows = new ArrayList<>(rowCount);
+        for (int entry = 0; entry < userCount; entry++) {
+            rows.addAll(decodeRun(indexStart + entry * INDEX_ENTRY_BYTES, Long.MIN_VALUE, Long.MAX_VALUE));
+        }
+        return rows;
+    }
+    
+    private int findUser(long userId) {
+        int low = 0;
+        int high = userCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long candidate = buffer.getLong(indexStart + mid * INDEX_ENTRY_BYTES);
+            if (candidate < userId) {
+                low = mid + 1;
+            } else if (candidate > userId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+    
+    private List<Row> decodeRun(int entryStart, long fromMicros, long toMicros) {
+        long userId = buffer.getLong(entryStart);
+        int runLength = buffer.getInt(entryStart + 8);
+        int[] cursors = new int[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            cursors[i] = columnStarts[i] + buffer.getInt(entryStart + 28 + 4 * i);
+        }
+        
+        List<Row> rows = new ArrayList<>();
+        long id = 0;
+        long executedAt = baseMicros;
+        for (int i = 0; i < runLength; i++) {
+            id += readSigned(cursors, ID);
+            executedAt += readSigned(cursors, EXECUTED_AT);
+            if (executedAt > toMicros) {
+                break; // runs are sorted by executed_at
+            }
+            long createdAt = executedAt + readSigned(cursors, CREATED_AT);
+            int symbolCode = (int) readUnsigned(cursors, SYMBOL);
+            int typeStatus = (int) readUnsigned(cursors, TYPE_STATUS);
+            long quantity = readSigned(cursors, QUANTITY);
+            long price = readSigned(cursors, PRICE);
+            long totalAdjustment = readSigned(cursors, TOTAL);
+            long commission = readSigned(cursors, COMMISSION);
+            String notes = readString(cursors, NOTES);
+            if (executedAt < fromMicros) {
+                continue;
+            }
+            
+            Row row = new Row();
+            row.id = id;
+            row.userId = userId;
+            row.stockId = stockIds[symbolCode];
+            row.symbol = symbols[symbolCode];
+            row.tradeType = typeStatus >>> 4;
+            row.tradeStatus = typeStatus & 0x0F;
+            row.quantity = (int) quantity;
+            row.priceCents = price;
+            row.commissionCents = commission;
+            row.totalCents = price * quantity + commission + totalAdjustment;
+            row.executedAtMicros = executedAt;
+            row.createdAtMicros = createdAt;
+            row.notes = notes;
+            rows.add(row);
+        }
+        return rows;
+    }
+    
+    private long readUnsigned(int[] cursors, int column) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(cursors[column]++);
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+    
+    private long readSigned(int[] cursors, int column) {
+        long value = readUnsigned(cursors, column);
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    private String readString(int[] cursors, int column) {
+        int length = (int) readUnsigned(cursors, column);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        buffer.get(cursors[column], bytes);
+        cursors[column] += bytes.length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    // Writes to a temporary file and moves it into place, so readers never see a partial segment
+    static void write(Path path, List<Row> rows) throws IOException {
+        List<Row> sorted = new ArrayList<>(rows);
+        sorted.sort(ROW_ORDER);
+        long baseMicros = sorted.isEmpty() ? 0 : sorted.stream().mapToLong(row -> row.executedAtMicros).min().getAsLong();
+        
+        Map<Long, Integer> dictionary = new LinkedHashMap<>();
+        Map<Long, String> dictionarySymbols = new LinkedHashMap<>();
+        ByteArrayOutputStream[] columns = new ByteArrayOutputStream[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            columns[i] = new ByteArrayOutputStream();
+        }
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+        int userCount = 0;
+        
+        int start = 0;
+        while (start < sorted.size()) {
+            long userId = sorted.get(start).userId;
+            int end = start;
+            while (end < sorted.size() && sorted.get(end).userId == userId) {
+                end++;
+            }
+            
+            entry.clear();
+            entry.putLong(userId).putInt(end - start)
+                    .putLong(sorted.get(start).executedAtMicros)
+                    .putLong(sorted.get(end - 1).executedAtMicros);
+            for (ByteArrayOutputStream column : columns) {
+                entry.putInt(column.size());
+            }
+            index.write(entry.array(), 0, INDEX_ENTRY_BYTES);
+            userCount++;
+            
+            long previousId = 0;
+            long previousExecutedAt = baseMicros;
+            for (int i = start; i < end; i++) {
+                Row row = sorted.get(i);
+                Integer symbolCode = dictionary.get(row.stockId);
+                if (symbolCode == null) {
+                    symbolCode = dictionary.size();
+                    dictionary.put(row.stockId, symbolCode);
+                    dictionarySymbols.put(row.stockId, row.symbol);
+                }
+                writeSigned(columns[ID], row.id - previousId);
+                writeSigned(columns[EXECUTED_AT], row.executedAtMicros - previousExecutedAt);
+                writeSigned(columns[CREATED_AT], row.createdAtMicros - row.executedAtMicros);
+                writeUnsigned(columns[SYMBOL], symbolCode);
+                writeUnsigned(columns[TYPE_STATUS], (row.tradeType << 4) | row.tradeStatus);
+                writeSigned(columns[QUANTITY], row.quantity);
+                writeSigned(columns[PRICE], row.priceCents);
+                writeSigned(columns[TOTAL], row.totalCents - row.priceCents * row.quantity - row.commissionCents);
+                writeSigned(columns[COMMISSION], row.commissionCents);
+                writeString(columns[NOTES], row.notes);
+                previousId = row.id;
+                previousExecutedAt = row.executedAtMicros;
+            }
+            start = end;
+        }
+        
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        ByteBuffer fixed = ByteBuffer.allocate(4 + 4 + 4 + 8 + 4);
+        fixed.putInt(MAGIC).putInt(sorted.size()).putInt(userCount).putLong(baseMicros).putInt(dictionary.size());
+        header.write(fixed.array());
+        for (Map.Entry<Long, String> symbol : dictionarySymbols.entrySet()) {
+            byte[] bytes = symbol.getValue().getBytes(StandardCharsets.UTF_8);
+            ByteBuffer dictionaryEntry = ByteBuffer.allocate(8 + 2 + bytes.length);
+            dictionaryEntry.putLong(symbol.getKey()).putShort((short) bytes.length).put(bytes);
+            header.write(dictionaryEntry.array());
+        }
+        ByteBuffer lengths = ByteBuffer.allocate(4 * COLUMNS);
+        for (ByteArrayOutputStream column : columns) {
+            lengths.putInt(column.size());
+        }
+        header.write(lengths.array());
+        
+        Files.createDirectories(path.getParent());
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header.toByteArray());
+            writeFully(channel, index.toByteArray());
+            for (ByteArrayOutputStream column : columns) {
+                writeFully(channel, column.toByteArray());
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private static void writeFully(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer source = ByteBuffer.wrap(bytes);
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+    
+    private static void writeUnsigned(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+    
+    private static void writeSigned(ByteArrayOutputStream out, long value) {
+        writeUnsigned(out, (value << 1) ^ (value >> 63));
+    }
+    
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeUnsigned(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeUnsigned(out, bytes.length + 1L);
+        out.write(bytes, 0, bytes.length);
+    }
+    
+    // Decoded trade row; amounts are in cents and timestamps in microseconds since the epoch (UTC wall clock)
+    static final class Row {
+        long id;
+        long userId;
+        long stockId;
+        String symbol;
+        int tradeType;
+        int tradeStatus;
+        int quantity;
+        long priceCents;
+        long totalCents;
+        long commissionCents;
+        long executedAtMicros;
+        long createdAtMicros;
+        String notes;
+    }
+}
@@ -0,0 +1,391 @@
+package com.stocktrade.service;
+
+import com.stocktrade.entity.Stock;
+import com.stocktrade.entity.Trade;
+import com.stocktrade.entity.User;
+import com.stocktrade.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Moves trades older than the cutoff out of the database into columnar segment files (see TradeArchiveSegment),
+// one file per month and user-id range. Files are written before the rows are deleted, so a crash in between
+// only leaves duplicates, which readers drop by trade id.
+@Service
+public class TradeArchiveService {
+    
+    private static final Logger log = LoggerFactory.getLogger(TradeArchiveService.class);
+    
+    private static final Pattern SEGMENT_NAME = Pattern.compile("trades_(\\d{4})_(\\d{2})_u(\\d+)-(\\d+)\\.tca");
+    private static final Pattern TABLE_NAME = Pattern.compile("trades_(\\d{4})_(\\d{2})");
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final int FETCH_SIZE = 500;
+    
+    private static final String SELECT_MONTH_SQL =
+            "SELECT t.id, t.user_id, t.stock_id, s.symbol, t.trade_type, t.trade_status, t.quantity, t.price, " +
+            "t.total_amount, t.commission, t.executed_at, t.created_at, t.notes " +
+            "FROM %s t JOIN stocks s ON s.id = t.stock_id " +
+            "WHERE t.executed_at >= ? AND t.executed_at < ? ORDER BY t.user_id, t.executed_at, t.id";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TradePartitionService partitionService;
+    private final UserRepository userRepository;
+    private final Path directory;
+    private final int afterMonths;
+    private final int userRangeSize;
+    
+    // Segments by month, then by user range; ranges come from the file names so changing the range size is safe
+    private final NavigableMap<YearMonth, NavigableSet<SegmentRef>> catalog = new ConcurrentSkipListMap<>();
+    private final Map<String, TradeArchiveSegment> openSegments = new ConcurrentHashMap<>();
+    private volatile long widestRange;
+    
+    @Autowired
+    public TradeArchiveService(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               TradePartitionService partitionService,
+                               UserRepository userRepository,
+                               @Value("${trades.archive.directory:data/trade-archive}") String directory,
+                               @Value("${trades.archive.after-months:12}") int afterMonths,
+                               @Value("${trades.archive.user-range-size:1000}") int userRangeSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.partitionService = partitionService;
+        this.userRepository = userRepository;
+        this.directory = Paths.get(directory);
+        this.afterMonths = afterMonths;
+        this.userRangeSize = userRangeSize;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCatalog() throws IOException {
+        catalog.clear();
+        openSegments.clear();
+        widestRange = 0;
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "trades_*.tca")) {
+            for (Path file : files) {
+                register(file.getFileName().toString());
+            }
+        }
+        log.info("Trade archive has {} segments in {}", getSegmentCount(), directory.toAbsolutePath());
+    }
+    
+    @Scheduled(cron = "${trades.archive.cron:0 45 0 * * *}")
+    public void scheduledArchive() {
+        if (afterMonths > 0) {
+            archiveColdTrades();
+        }
+    }
+    
+    // Archives every month before the cutoff that still has rows in trades, plus any partitions the
+    // partition service already detached into the archive schema
+    public synchronized long archiveColdTrades() {
+        long archived = 0;
+        YearMonth cutoff = YearMonth.now().minusMonths(afterMonths);
+        
+        if (partitionService.isPartitioned()) {
+            List<String> detached = jdbcTemplate.queryForList(
+                    "SELECT table_name FROM information_schema.tables WHERE table_schema = ? ORDER BY table_name",
+                    String.class, TradePartitionService.ARCHIVE_SCHEMA);
+            for (String table : detached) {
+                Matcher matcher = TABLE_NAME.matcher(table);
+                if (matcher.matches()) {
+                    YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+                    archived += archiveMonth(TradePartitionService.ARCHIVE_SCHEMA + "." + table, month);
+                    jdbcTemplate.execute("DROP TABLE " + TradePartitionService.ARCHIVE_SCHEMA + "." + table);
+                }
+            }
+        }
+        
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(executed_at) FROM trades WHERE executed_at < ?", Timestamp.class, toTimestamp(cutoff));
+        if (oldest != null) {
+            for (YearMonth month = YearMonth.from(oldest.toLocalDateTime()); month.isBefore(cutoff); month = month.plusMonths(1)) {
+                archived += archiveMonth("trades", month);
+                deleteArchivedRows(month);
+            }
+        }
+        
+        if (archived > 0) {
+            log.info("Archived {} trades older than {} into {}", archived, cutoff, directory.toAbsolutePath());
+        }
+        return archived;
+    }
+    
+    // Archived trades of one user with executed_at between the bounds (inclusive), oldest first within each month.
+    // The returned entities are detached; the stock only carries its id and symbol.
+    public List<Trade> findUserTrades(Long userId, LocalDateTime fromDate, LocalDateTime toDate) {
+        List<Trade> trades = new ArrayList<>();
+        if (catalog.isEmpty() || fromDate.isAfter(toDate)) {
+            return trades;
+        }
+        long fromMicros = toMicros(fromDate);
+        long toMicros = toMicros(toDate);
+        
+        Set<Long> seen = new HashSet<>();
+        User user = null;
+        Map<Long, Stock> stocks = new HashMap<>();
+        for (NavigableSet<SegmentRef> segments :
+                catalog.subMap(YearMonth.from(fromDate), true, YearMonth.from(toDate), true).values()) {
+            for (SegmentRef ref : covering(segments, userId)) {
+                for (TradeArchiveSegment.Row row : segment(ref.name).read(userId, fromMicros, toMicros)) {
+                    if (!seen.add(row.id)) {
+                        continue;
+                    }
+                    if (user == null) {
+                        user = userRepository.getReferenceById(userId);
+                    }
+                    trades.add(toTrade(row, user, stocks));
+                }
+            }
+        }
+        return trades;
+    }
+    
+    public int getSegmentCount() {
+        return catalog.values().stream().mapToInt(Set::size).sum();
+    }
+    
+    private long archiveMonth(String table, YearMonth month) {
+        SegmentBuilder builder = new SegmentBuilder(month);
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(String.format(SELECT_MONTH_SQL, table),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setTimestamp(1, toTimestamp(month));
+            statement.setTimestamp(2, toTimestamp(month.plusMonths(1)));
+            return statement;
+        }, (RowCallbackHandler) builder::add));
+        builder.flush();
+        return builder.total;
+    }
+    
+    private void deleteArchivedRows(YearMonth month) {
+        if (partitionService.isPartitioned()) {
+            String partition = TradePartitionService.partitionName(month);
+            Boolean exists = jdbcTemplate.queryForObject(
+                    "SELECT to_regclass(?) IS NOT NULL", Boolean.class, "public." + partition);
+            if (Boolean.TRUE.equals(exists)) {
+                // Dropping the whole partition returns its space immediately, unlike DELETE
+                jdbcTemplate.execute("DROP TABLE " + partition);
+            }
+        }
+        // Anything left, e.g. rows that landed in the default partition
+        jdbcTemplate.update("DELETE FROM trades WHERE executed_at >= ? AND executed_at < ?",
+                toTimestamp(month), toTimestamp(month.plusMonths(1)));
+    }
+    
+    private void writeSegment(YearMonth month, long rangeStart, List<TradeArchiveSegment.Row> rows) {
+        String name = segmentName(month, rangeStart, rangeStart + userRangeSize - 1);
+        try {
+            if (Files.exists(directory.resolve(name))) {
+                TradeArchiveSegment existing = segment(name);
+                // Merge with what an earlier run archived; rows from the database win on duplicate ids
+                Map<Long, TradeArchiveSegment.Row> merged = new LinkedHashMap<>();
+                for (TradeArchiveSegment.Row row : existing.readAll()) {
+                    merged.put(row.id, row);
+                }
+                for (TradeArchiveSegment.Row row : rows) {
+                    merged.put(row.id, row);
+                }
+                rows = new ArrayList<>(merged.values());
+            }
+            TradeArchiveSegment.write(directory.resolve(name), rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write trade archive segment " + name, e);
+        }
+        openSegments.remove(name);
+        register(name);
+    }
+    
+    private TradeArchiveSegment segment(String name) {
+        return openSegments.computeIfAbsent(name, key -> {
+            try {
+                return TradeArchiveSegment.open(directory.resolve(key));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open trade archive segment " + key, e);
+            }
+        });
+    }
+    
+    private void register(String name) {
+        Matcher matcher = SEGMENT_NAME.matcher(name);
+        if (!matcher.matches()) {
+            return;
+        }
+        YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+        SegmentRef ref = new SegmentRef(name, Long.parseLong(matcher.group(3)), Long.parseLong(matcher.group(4)));
+        catalog.computeIfAbsent(month, key -> new ConcurrentSkipListSet<>()).add(ref);
+        widestRange = Math.max(widestRange, ref.lastUserId - ref.firstUserId);
+    }
+    
+    // Segments of one month whose user range contains the user; walks down from the closest range start
+    private List<SegmentRef> covering(NavigableSet<SegmentRef> segments, long userId) {
+        List<SegmentRef> covering = new ArrayList<>();
+        for (SegmentRef ref : segments.headSet(new SegmentRef(null, userId, Long.MAX_VALUE), true).descendingSet()) {
+            if (ref.firstUserId < userId - widestRange) {
+                break;
+            }
+            if (ref.lastUserId >= userId) {
+                covering.add(ref);
+            }
+        }
+        return covering;
+    }
+    
+    private long rangeStart(long userId) {
+        return Math.floorDiv(userId, (long) userRangeSize) * userRangeSize;
+    }
+    
+    private static String segmentName(YearMonth month, long firstUserId, long lastUserId) {
+        return "trades_" + month.format(MONTH_SUFFIX) + "_u" + firstUserId + "-" + lastUserId + ".tca";
+    }
+    
+    private Trade toTrade(TradeArchiveSegment.Row row, User user, Map<Long, Stock> stocks) {
+        Stock stock = stocks.computeIfAbsent(row.stockId, id -> {
+            Stock stub = new Stock();
+            stub.setId(id);
+            stub.setSymbol(row.symbol);
+            return stub;
+        });
+        Trade trade = new Trade();
+        trade.setId(row.id);
+        trade.setUser(user);
+        trade.setStock(stock);
+        trade.setTradeType(Trade.TradeType.values()[row.tradeType]);
+        trade.setTradeStatus(Trade.TradeStatus.values()[row.tradeStatus]);
+        trade.setQuantity(row.quantity);
+        trade.setPrice(BigDecimal.valueOf(row.priceCents, 2));
+        trade.setCommission(BigDecimal.valueOf(row.commissionCents, 2));
+        trade.setTotalAmount(BigDecimal.valueOf(row.totalCents, 2));
+        trade.setExecutedAt(fromMicros(row.executedAtMicros));
+        trade.setCreatedAt(fromMicros(row.createdAtMicros));
+        trade.setNotes(row.notes);
+        return trade;
+    }
+    
+    private static long cents(BigDecimal amount) {
+        return amount != null ? amount.setScale(2).unscaledValue().longValueExact() : 0;
+    }
+    
+    // Timestamps are stored as wall-clock time, matching the TIMESTAMP columns
+    private static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+    
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+    
+    private static Timestamp toTimestamp(YearMonth month) {
+        return Timestamp.valueOf(month.atDay(1).atStartOfDay());
+    }
+    
+    // Collects streamed rows, which arrive ordered by user, and writes a segment whenever the user range changes
+    private final class SegmentBuilder {
+        private final YearMonth month;
+        private final List<TradeArchiveSegment.Row> rows = new ArrayList<>();
+        private long rangeStart = -1;
+        private long total;
+        
+        SegmentBuilder(YearMonth month) {
+            this.month = month;
+        }
+        
+        void add(ResultSet rs) throws SQLException {
+            TradeArchiveSegment.Row row = new TradeArchiveSegment.Row();
+            row.id = rs.getLong("id");
+            row.userId = rs.getLong("user_id");
+            row.stockId = rs.getLong("stock_id");
+            row.symbol = rs.getString("symbol");
+            row.tradeType = Trade.TradeType.valueOf(rs.getString("trade_type")).ordinal();
+            row.tradeStatus = Trade.TradeStatus.valueOf(rs.getString("trade_status")).ordinal();
+            row.quantity = rs.getInt("quantity");
+            row.priceCents = cents(rs.getBigDecimal("price"));
+            row.totalCents = cents(rs.getBigDecimal("total_amount"));
+            row.commissionCents = cents(rs.getBigDecimal("commission"));
+            row.executedAtMicros = toMicros(rs.getTimestamp("executed_at").toLocalDateTime());
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            row.createdAtMicros = createdAt != null ? toMicros(createdAt.toLocalDateTime()) : row.executedAtMicros;
+            row.notes = rs.getString("notes");
+            
+            long range = rangeStart(row.userId);
+            if (range != rangeStart) {
+                flush();
+                rangeStart = range;
+            }
+            rows.add(row);
+        }
+        
+        void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            writeSegment(month, rangeStart, rows);
+            total += rows.size();
+            rows.clear();
+        }
+    }
+    
+    private static final class SegmentRef implements Comparable<SegmentRef> {
+        private final String name;
+        private final long firstUserId;
+        private final long lastUserId;
+        
+        SegmentRef(String name, long firstUserId, long lastUserId) {
+            this.name = name;
+            this.firstUserId = firstUserId;
+            this.lastUserId = lastUserId;
+        }
+        
+        @Override
+        public int compareTo(SegmentRef other) {
+            int byFirst = Long.compare(firstUserId, other.firstUserId);
+            return byFirst != 0 ? byFirst : Long.compare(lastUserId, other.lastUserId);
+        }
+    }
+}
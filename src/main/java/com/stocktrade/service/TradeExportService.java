@@ -0,0 +1,163 @@
+package com.stocktrade.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+@Service
+public class TradeExportService {
+    
+    public enum Format {
+        NDJSON, CSV
+    }
+    
+    private static final int FETCH_SIZE = 500;
+    
+    private static final String EXPORT_SQL =
+            "SELECT t.id, s.symbol, t.trade_type, t.quantity, t.price, t.total_amount, t.commission, " +
+            "t.trade_status, t.executed_at " +
+            "FROM trades t JOIN stocks s ON s.id = t.stock_id " +
+            "WHERE t.user_id = ? ORDER BY t.executed_at DESC, t.id DESC";
+    
+    private static final String CSV_HEADER =
+            "id,symbol,tradeType,quantity,price,totalAmount,commission,tradeStatus,executedAt\n";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    
+    @Autowired
+    public TradeExportService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    // Runs in a read-only transaction so the driver honours the fetch size (PostgreSQL only
+    // streams with a cursor when autocommit is off); rows are written as they are fetched.
+    @Transactional(readOnly = true)
+    public void exportUserTrades(Long userId, Format format, OutputStream out) throws IOException {
+        RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out);
+        
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EXPORT_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setLong(1, userId);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            try {
+                rowWriter.write(rs);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        
+        rowWriter.finish();
+    }
+    
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+        
+        void finish() throws IOException;
+    }
+    
+    private final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+        
+        NdjsonRowWriter(OutputStream out) throws IOException {
+            this.generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+            this.generator.setRootValueSeparator(null);
+        }
+        
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", rs.getLong(1));
+            generator.writeStringField("symbol", rs.getString(2));
+            generator.writeStringField("tradeType", rs.getString(3));
+            generator.writeNumberField("quantity", rs.getInt(4));
+            generator.writeNumberField("price", rs.getBigDecimal(5));
+            generator.writeNumberField("totalAmount", rs.getBigDecimal(6));
+            generator.writeNumberField("commission", rs.getBigDecimal(7));
+            generator.writeStringField("tradeStatus", rs.getString(8));
+            generator.writeStringField("executedAt", formatTimestamp(rs.getTimestamp(9)));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+        
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+    
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+        
+        CsvRowWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.writer.write(CSV_HEADER);
+        }
+        
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            writer.write(Long.toString(rs.getLong(1)));
+            writer.write(',');
+            writer.write(escape(rs.getString(2)));
+            writer.write(',');
+            writer.write(rs.getString(3));
+            writer.write(',');
+            writer.write(Integer.toString(rs.getInt(4)));
+            writer.write(',');
+            writer.write(plain(rs.getBigDecimal(5)));
+            writer.write(',');
+            writer.write(plain(rs.getBigDecimal(6)));
+            writer.write(',');
+            writer.write(plain(rs.getBigDecimal(7)));
+            writer.write(',');
+            writer.write(rs.getString(8));
+            writer.write(',');
+            writer.write(formatTimestamp(rs.getTimestamp(9)));
+            writer.write('\n');
+        }
+        
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+        
+        private static String plain(BigDecimal value) {
+            return value != null ? value.toPlainString() : "";
+        }
+        
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+    
+    private static String formatTimestamp(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime().toString() : null;
+    }
+}
@@ -0,0 +1,240 @@
+package com.stocktrade.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stocktrade.entity.OutboxConsumerOffset;
+import com.stocktrade.entity.OutboxEvent;
+import com.stocktrade.event.OutboxConsumer;
+import com.stocktrade.event.OutboxMessage;
+import com.stocktrade.event.TradeExecutedEvent;
+import com.stocktrade.repository.OutboxConsumerOffsetRepository;
+import com.stocktrade.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Transactional outbox for trade events. append() must run inside the trade's transaction, so an event
+// exists exactly when its trade does. The relay reads committed rows in id order and hands them to each
+// subscribed consumer, recording a per-consumer offset after every batch (at-least-once delivery).
+@Service
+public class TradeOutboxService {
+    
+    private static final Logger log = LoggerFactory.getLogger(TradeOutboxService.class);
+    
+    public static final String TRADE_EXECUTED = "TRADE_EXECUTED";
+    
+    private final OutboxEventRepository outboxRepository;
+    private final OutboxConsumerOffsetRepository offsetRepository;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final long gapTimeoutMillis;
+    private final int retentionDays;
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    // First missing id of each gap still holding the relay back -> on PostgreSQL the snapshot xmax when it was
+    // first seen, elsewhere the time it was first seen. Only touched from the synchronized relay.
+    private final Map<Long, Long> gaps = new HashMap<>();
+    private Boolean postgres;
+    
+    @Autowired
+    public TradeOutboxService(OutboxEventRepository outboxRepository,
+                              OutboxConsumerOffsetRepository offsetRepository,
+                              ObjectMapper objectMapper,
+                              JdbcTemplate jdbcTemplate,
+                              @Value("${trades.outbox.batch-size:200}") int batchSize,
+                              @Value("${trades.outbox.gap-timeout-ms:10000}") long gapTimeoutMillis,
+                              @Value("${trades.outbox.retention-days:7}") int retentionDays) {
+        this.outboxRepository = outboxRepository;
+        this.offsetRepository = offsetRepository;
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.retentionDays = retentionDays;
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(TradeExecutedEvent event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize trade event " + event.getTradeId(), e);
+        }
+        outboxRepository.save(new OutboxEvent(event.getUserId(), TRADE_EXECUTED, payload));
+    }
+    
+    // A new consumer starts from the oldest retained event; a known name resumes from its stored offset
+    public void subscribe(String consumerName, OutboxConsumer consumer) {
+        if (subscriptions.putIfAbsent(consumerName, new Subscription(consumerName, consumer)) != null) {
+            throw new IllegalArgumentException("Outbox consumer already subscribed: " + consumerName);
+        }
+    }
+    
+    public void unsubscribe(String consumerName) {
+        subscriptions.remove(consumerName);
+    }
+    
+    @Scheduled(fixedDelayString = "${trades.outbox.poll-interval-ms:500}")
+    public synchronized int relay() {
+        if (subscriptions.isEmpty()) {
+            return 0;
+        }
+        int delivered = 0;
+        while (true) {
+            long lowestOffset = Long.MAX_VALUE;
+            for (Subscription subscription : subscriptions.values()) {
+                lowestOffset = Math.min(lowestOffset, subscription.offset());
+            }
+            long floor = lowestOffset;
+            gaps.keySet().removeIf(missing -> missing <= floor);
+            
+            // Read before the batch: a transaction that finished before this point is visible to the query below
+            long oldestOpenTransaction = isPostgres() ? snapshotBound("txid_snapshot_xmin") : 0;
+            List<OutboxEvent> batch = outboxRepository.findBatchAfter(lowestOffset, PageRequest.of(0, batchSize));
+            List<OutboxMessage> ready = settledPrefix(batch, lowestOffset, oldestOpenTransaction);
+            if (ready.isEmpty()) {
+                return delivered;
+            }
+            
+            boolean allCaughtUp = true;
+            for (Subscription subscription : subscriptions.values()) {
+                delivered += subscription.deliver(ready);
+                allCaughtUp &= subscription.offset() >= ready.get(ready.size() - 1).getOffset();
+            }
+            if (ready.size() < batchSize || !allCaughtUp) {
+                return delivered;
+            }
+        }
+    }
+    
+    @Scheduled(cron = "${trades.outbox.cleanup-cron:0 30 1 * * *}")
+    @Transactional
+    public int deleteExpiredEvents() {
+        int deleted = outboxRepository.deleteCreatedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("Deleted {} outbox events older than {} days", deleted, retentionDays);
+        }
+        return deleted;
+    }
+    
+    // Ids are allocated before commit, so a later id can become visible before an earlier one. The relay stops
+    // at a gap until the missing ids can no longer commit, then moves past them as rolled back.
+    private List<OutboxMessage> settledPrefix(List<OutboxEvent> batch, long afterId, long oldestOpenTransaction) {
+        List<OutboxMessage> ready = new ArrayList<>(batch.size());
+        long previous = afterId;
+        for (OutboxEvent event : batch) {
+            if (event.getId() != previous + 1 && !isGapSettled(previous + 1, oldestOpenTransaction)) {
+                break;
+            }
+            ready.add(toMessage(event));
+            previous = event.getId();
+        }
+        return ready;
+    }
+    
+    // On PostgreSQL the transaction that took a missing id already had an xid when the later row was seen, so
+    // it is below the xmax recorded then. Once the oldest open transaction is at or past that xmax, it has
+    // ended, and a row that is still missing was rolled back; a slow commit is never skipped. Other
+    // databases fall back to waiting out the gap timeout.
+    private boolean isGapSettled(long missingId, long oldestOpenTransaction) {
+        Long horizon = gaps.get(missingId);
+        if (horizon == null) {
+            gaps.put(missingId, isPostgres() ? snapshotBound("txid_snapshot_xmax") : System.currentTimeMillis());
+            return false;
+        }
+        boolean settled = isPostgres()
+                ? oldestOpenTransaction >= horizon
+                : System.currentTimeMillis() - horizon >= gapTimeoutMillis;
+        if (settled) {
+            gaps.remove(missingId);
+            log.info("Outbox event {} was never committed, relaying past it", missingId);
+        }
+        return settled;
+    }
+    
+    private long snapshotBound(String function) {
+        Long bound = jdbcTemplate.queryForObject("SELECT " + function + "(txid_current_snapshot())", Long.class);
+        return bound != null ? bound : 0;
+    }
+    
+    private boolean isPostgres() {
+        if (postgres == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(product);
+        }
+        return postgres;
+    }
+    
+    private OutboxMessage toMessage(OutboxEvent event) {
+        JsonNode payload;
+        try {
+            payload = objectMapper.readTree(event.getPayload());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt outbox payload for event " + event.getId(), e);
+        }
+        return new OutboxMessage(event.getId(), event.getAccountId(), event.getEventType(), event.getCreatedAt(), payload);
+    }
+    
+    private final class Subscription {
+        private final String name;
+        private final OutboxConsumer consumer;
+        private Long offset;
+        
+        Subscription(String name, OutboxConsumer consumer) {
+            this.name = name;
+            this.consumer = consumer;
+        }
+        
+        long offset() {
+            if (offset == null) {
+                offset = offsetRepository.findById(name).map(OutboxConsumerOffset::getLastEventId).orElse(0L);
+            }
+            return offset;
+        }
+        
+        // Delivers in order and stops at the first failure, which keeps per-account ordering intact
+        int deliver(List<OutboxMessage> messages) {
+            long start = offset();
+            long current = start;
+            int delivered = 0;
+            for (OutboxMessage message : messages) {
+                if (message.getOffset() <= current) {
+                    continue;
+                }
+                try {
+                    consumer.handle(message);
+                } catch (Exception e) {
+                    log.warn("Outbox consumer {} failed at event {}, will retry: {}", name, message.getOffset(), e.getMessage());
+                    break;
+                }
+                current = message.getOffset();
+                delivered++;
+            }
+            if (current != start) {
+                OutboxConsumerOffset stored = offsetRepository.findById(name).orElseGet(() -> new OutboxConsumerOffset(name));
+                stored.setLastEventId(current);
+                offsetRepository.save(stored);
+                offset = current;
+            }
+            return delivered;
+        }
+    }
+}
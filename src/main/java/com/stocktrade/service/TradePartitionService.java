@@ -0,0 +1,149 @@
+package com.stocktrade.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Keeps the monthly partitions of the trades table rolling forward on PostgreSQL. Nothing here partitions the
+// table: the V5 migration has to be applied by hand, and until it is every method is a no-op.
+// Each DDL statement runs in its own autocommit transaction so one failure does not block the rest.
+@Service
+public class TradePartitionService {
+    
+    private static final Logger log = LoggerFactory.getLogger(TradePartitionService.class);
+    
+    public static final String ARCHIVE_SCHEMA = "trade_archive";
+    
+    private static final Pattern PARTITION_NAME = Pattern.compile("trades_(\\d{4})_(\\d{2})");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private volatile boolean partitioned;
+    
+    @Autowired
+    public TradePartitionService(JdbcTemplate jdbcTemplate,
+                                 @Value("${trades.partitions.months-ahead:3}") int monthsAhead,
+                                 @Value("${trades.partitions.retention-months:24}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+    
+    // Detected once; converting the table needs a restart to be picked up
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        partitioned = detectPartitionedTrades();
+        if (!partitioned) {
+            log.info("trades is not partitioned; apply db/migration/V5__Partition_trades_by_month.sql to enable monthly partitions");
+            return;
+        }
+        maintainPartitions();
+    }
+    
+    @Scheduled(cron = "${trades.partitions.cron:0 15 0 * * *}")
+    public void maintainPartitions() {
+        if (!isPartitioned()) {
+            return;
+        }
+        createUpcomingPartitions();
+        if (retentionMonths > 0) {
+            detachExpiredPartitions();
+        }
+    }
+    
+    public List<String> createUpcomingPartitions() {
+        List<String> created = new ArrayList<>();
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            String name = partitionName(month);
+            if (exists("public." + name)) {
+                continue;
+            }
+            try {
+                jdbcTemplate.execute(String.format(
+                        "CREATE TABLE %s PARTITION OF trades FOR VALUES FROM ('%s') TO ('%s')",
+                        name, month.atDay(1), month.plusMonths(1).atDay(1)));
+                created.add(name);
+                log.info("Created trades partition {}", name);
+            } catch (DataAccessException e) {
+                // Usually rows for that month already sit in trades_default and must be moved by hand
+                log.warn("Could not create trades partition {}: {}", name, e.getMostSpecificCause().getMessage());
+            }
+        }
+        return created;
+    }
+    
+    public List<String> detachExpiredPartitions() {
+        List<String> detached = new ArrayList<>();
+        YearMonth cutoff = YearMonth.now().minusMonths(retentionMonths);
+        for (String name : listPartitions()) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (!month.isBefore(cutoff)) {
+                continue;
+            }
+            try {
+                jdbcTemplate.execute("ALTER TABLE trades DETACH PARTITION " + name);
+                jdbcTemplate.execute("ALTER TABLE " + name + " SET SCHEMA " + ARCHIVE_SCHEMA);
+                detached.add(name);
+                log.info("Detached trades partition {} into {}", name, ARCHIVE_SCHEMA);
+            } catch (DataAccessException e) {
+                log.warn("Could not detach trades partition {}: {}", name, e.getMostSpecificCause().getMessage());
+            }
+        }
+        return detached;
+    }
+    
+    public List<String> listPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'public.trades'::regclass ORDER BY c.relname",
+                String.class);
+    }
+    
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+    
+    public static String partitionName(YearMonth month) {
+        return "trades_" + month.format(PARTITION_SUFFIX);
+    }
+    
+    private boolean detectPartitionedTrades() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(product)) {
+            return false;
+        }
+        Boolean result = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('public.trades'))",
+                Boolean.class);
+        return Boolean.TRUE.equals(result);
+    }
+    
+    private boolean exists(String qualifiedName) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, qualifiedName));
+    }
+}
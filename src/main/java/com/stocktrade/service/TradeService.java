@@ -1,31 +1,51 @@
 package com.stocktrade.service;
 
+import com.stocktrade.entity.RealizedGain;
 import com.stocktrade.entity.Stock;
+import com.stocktrade.entity.TaxLot;
 import com.stocktrade.entity.Trade;
 import com.stocktrade.entity.User;
+import com.stocktrade.entity.UserTradeStats;
+import com.stocktrade.event.TradeExecutedEvent;
 import com.stocktrade.repository.StockRepository;
 import com.stocktrade.repository.TradeRepository;
 import com.stocktrade.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class TradeService {
     
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    
     private final TradeRepository tradeRepository;
     private final UserRepository userRepository;
     private final StockRepository stockRepository;
     private final UserService userService;
     private final PortfolioService portfolioService;
     private final StockService stockService;
+    private final TaxLotService taxLotService;
+    private final TradeStatsService tradeStatsService;
+    private final TradeArchiveService tradeArchiveService;
+    private final TradeOutboxService tradeOutboxService;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Autowired
     public TradeService(TradeRepository tradeRepository,
@@ -33,13 +53,23 @@ public class TradeService {
                        StockRepository stockRepository,
                        UserService userService,
                        PortfolioService portfolioService,
-                       StockService stockService) {
+                       StockService stockService,
+                       TaxLotService taxLotService,
+                       TradeStatsService tradeStatsService,
+                       TradeArchiveService tradeArchiveService,
+                       TradeOutboxService tradeOutboxService,
+                       ApplicationEventPublisher eventPublisher) {
         this.tradeRepository = tradeRepository;
         this.userRepository = userRepository;
         this.stockRepository = stockRepository;
         this.userService = userService;
         this.portfolioService = portfolioService;
         this.stockService = stockService;
+        this.taxLotService = taxLotService;
+        this.tradeStatsService = tradeStatsService;
+        this.tradeArchiveService = tradeArchiveService;
+        this.tradeOutboxService = tradeOutboxService;
+        this.eventPublisher = eventPublisher;
     }
     
     @Transactional
@@ -94,13 +124,21 @@ public class TradeService {
         trade.setExecutedAt(LocalDateTime.now());
         
         // Update user cash balance
-        userService.subtractCash(userId, actualTotalCost);
+        userService.debitCash(userId, actualTotalCost);
         
         // Update portfolio
         portfolioService.addToPortfolio(userId, stockSymbol, quantity, marketPrice);
         
+        // Open a tax lot for the purchased shares
+        taxLotService.openLot(user, stock, quantity, marketPrice, trade.getExecutedAt());
+        
         // Save trade
-        return tradeRepository.save(trade);
+        Trade savedTrade = tradeRepository.save(trade);
+        tradeStatsService.recordTrade(savedTrade);
+        TradeExecutedEvent event = new TradeExecutedEvent(savedTrade);
+        tradeOutboxService.append(event);
+        eventPublisher.publishEvent(event);
+        return savedTrade;
     }
     
     @Transactional
@@ -146,14 +184,23 @@ public class TradeService {
         trade.setTradeStatus(Trade.TradeStatus.COMPLETED);
         trade.setExecutedAt(LocalDateTime.now());
         
+        // Close tax lots and book realized gain/loss before the position average cost is lost
+        BigDecimal averageCost = portfolioService.getAverageCostBasis(userId, stockSymbol);
+        taxLotService.closeLots(user, stock, quantity, marketPrice, averageCost);
+        
         // Update portfolio (remove shares)
         portfolioService.removeFromPortfolio(userId, stockSymbol, quantity);
         
         // Update user cash balance
-        userService.addCash(userId, totalRevenue);
+        userService.creditCash(userId, totalRevenue);
         
         // Save trade
-        return tradeRepository.save(trade);
+        Trade savedTrade = tradeRepository.save(trade);
+        tradeStatsService.recordTrade(savedTrade);
+        TradeExecutedEvent event = new TradeExecutedEvent(savedTrade);
+        tradeOutboxService.append(event);
+        eventPublisher.publishEvent(event);
+        return savedTrade;
     }
     
     public List<Trade> getUserTrades(Long userId) {
@@ -164,6 +211,27 @@ public class TradeService {
         return tradeRepository.findByUserIdOrderByExecutedAtDesc(userId, pageable);
     }
     
+    public TradeHistoryPage getUserTradeHistory(Long userId, String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_HISTORY_PAGE_SIZE);
+        // Fetch one extra row to learn whether another page exists without counting
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        
+        List<Trade> trades;
+        if (cursor == null || cursor.isBlank()) {
+            trades = tradeRepository.findFirstTradePage(userId, limit);
+        } else {
+            HistoryCursor position = HistoryCursor.decode(cursor);
+            trades = tradeRepository.findTradePageAfter(userId, position.executedAt, position.id, limit);
+        }
+        
+        boolean hasMore = trades.size() > pageSize;
+        if (hasMore) {
+            trades = trades.subList(0, pageSize);
+        }
+        String nextCursor = hasMore ? HistoryCursor.encode(trades.get(trades.size() - 1)) : null;
+        return new TradeHistoryPage(trades, nextCursor);
+    }
+    
     public List<Trade> getUserTradesForStock(Long userId, String stockSymbol) {
         return tradeRepository.findByUserIdAndStockSymbolOrderByExecutedAtDesc(userId, stockSymbol.toUpperCase());
     }
@@ -172,8 +240,20 @@ public class TradeService {
         return tradeRepository.findUserTradesSince(userId, fromDate);
     }
     
+    // Newest first; trades moved to the archive are merged in, skipping ids still present in the table
     public List<Trade> getUserTradesBetween(Long userId, LocalDateTime fromDate, LocalDateTime toDate) {
-        return tradeRepository.findUserTradesBetween(userId, fromDate, toDate);
+        List<Trade> trades = new ArrayList<>(tradeRepository.findUserTradesBetween(userId, fromDate, toDate));
+        List<Trade> archived = tradeArchiveService.findUserTrades(userId, fromDate, toDate);
+        if (!archived.isEmpty()) {
+            Set<Long> liveIds = trades.stream().map(Trade::getId).collect(Collectors.toSet());
+            for (Trade trade : archived) {
+                if (!liveIds.contains(trade.getId())) {
+                    trades.add(trade);
+                }
+            }
+        }
+        trades.sort(Comparator.comparing(Trade::getExecutedAt).thenComparing(Trade::getId).reversed());
+        return trades;
     }
     
     public List<Trade> getStockTrades(String stockSymbol) {
@@ -185,13 +265,11 @@ public class TradeService {
     }
     
     public BigDecimal getTotalBuyAmount(Long userId) {
-        Double total = tradeRepository.calculateTotalTradeAmount(userId, Trade.TradeType.BUY);
-        return total != null ? BigDecimal.valueOf(total) : BigDecimal.ZERO;
+        return tradeStatsService.getStats(userId).getBuyTotal();
     }
     
     public BigDecimal getTotalSellAmount(Long userId) {
-        Double total = tradeRepository.calculateTotalTradeAmount(userId, Trade.TradeType.SELL);
-        return total != null ? BigDecimal.valueOf(total) : BigDecimal.ZERO;
+        return tradeStatsService.getStats(userId).getSellTotal();
     }
     
     public Integer getTotalSharesBought(Long userId, String stockSymbol) {
@@ -205,7 +283,7 @@ public class TradeService {
     }
     
     public long getUserTradeCount(Long userId) {
-        return tradeRepository.countCompletedTradesByUser(userId);
+        return tradeStatsService.getStats(userId).getTradeCount();
     }
     
     public long getStockTradeCount(String stockSymbol) {
@@ -222,26 +300,35 @@ public class TradeService {
     }
     
     public List<String> getUserTradedSymbols(Long userId) {
-        return tradeRepository.findTradedStockSymbolsByUser(userId);
+        List<String> symbols = new ArrayList<>(tradeStatsService.getStats(userId).getTradedSymbols());
+        Collections.sort(symbols);
+        return symbols;
     }
     
     public TradeSummary getTradeSummary(Long userId) {
-        BigDecimal totalBuyAmount = getTotalBuyAmount(userId);
-        BigDecimal totalSellAmount = getTotalSellAmount(userId);
-        long totalTradeCount = getUserTradeCount(userId);
-        List<String> tradedSymbols = getUserTradedSymbols(userId);
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
         
-        BigDecimal realizedGainLoss = totalSellAmount.subtract(totalBuyAmount);
+        UserTradeStats stats = tradeStatsService.getStats(userId);
         
         return new TradeSummary(
-                totalBuyAmount,
-                totalSellAmount,
-                realizedGainLoss,
-                totalTradeCount,
-                tradedSymbols.size()
+                stats.getBuyTotal(),
+                stats.getSellTotal(),
+                user.getRealizedGainLoss(),
+                user.getRealizedCostBasis(),
+                stats.getTradeCount(),
+                stats.getDistinctSymbols()
         );
     }
     
+    public List<RealizedGain> getRealizedGains(Long userId) {
+        return taxLotService.getRealizedGains(userId);
+    }
+    
+    public List<TaxLot> getOpenLots(Long userId, String stockSymbol) {
+        return taxLotService.getOpenLots(userId, stockSymbol);
+    }
+    
     public boolean canAffordTrade(Long userId, String stockSymbol, Integer quantity) {
         try {
             User user = userRepository.findById(userId).orElse(null);
@@ -261,18 +348,63 @@ public class TradeService {
         return sharesOwned >= quantity;
     }
     
+    // Opaque continuation token carrying the (executed_at, id) of the last row served
+    private static final class HistoryCursor {
+        final LocalDateTime executedAt;
+        final Long id;
+        
+        HistoryCursor(LocalDateTime executedAt, Long id) {
+            this.executedAt = executedAt;
+            this.id = id;
+        }
+        
+        static String encode(Trade trade) {
+            String raw = trade.getExecutedAt() + "|" + trade.getId();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        static HistoryCursor decode(String token) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new HistoryCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid history cursor");
+            }
+        }
+    }
+    
+    public static class TradeHistoryPage {
+        private final List<Trade> trades;
+        private final String nextCursor;
+        
+        public TradeHistoryPage(List<Trade> trades, String nextCursor) {
+            this.trades = trades;
+            this.nextCursor = nextCursor;
+        }
+        
+        // Getters
+        public List<Trade> getTrades() { return trades; }
+        public String getNextCursor() { return nextCursor; }
+        public boolean isHasMore() { return nextCursor != null; }
+    }
+    
     public static class TradeSummary {
         private final BigDecimal totalBuyAmount;
         private final BigDecimal totalSellAmount;
         private final BigDecimal realizedGainLoss;
+        private final BigDecimal realizedCostBasis;
         private final long totalTradeCount;
         private final long uniqueStocksTraded;
         
         public TradeSummary(BigDecimal totalBuyAmount, BigDecimal totalSellAmount,
-                           BigDecimal realizedGainLoss, long totalTradeCount, long uniqueStocksTraded) {
+                           BigDecimal realizedGainLoss, BigDecimal realizedCostBasis,
+                           long totalTradeCount, long uniqueStocksTraded) {
             this.totalBuyAmount = totalBuyAmount;
             this.totalSellAmount = totalSellAmount;
             this.realizedGainLoss = realizedGainLoss;
+            this.realizedCostBasis = realizedCostBasis;
             this.totalTradeCount = totalTradeCount;
             this.uniqueStocksTraded = uniqueStocksTraded;
         }
@@ -281,14 +413,15 @@ public class TradeService {
         public BigDecimal getTotalBuyAmount() { return totalBuyAmount; }
         public BigDecimal getTotalSellAmount() { return totalSellAmount; }
         public BigDecimal getRealizedGainLoss() { return realizedGainLoss; }
+        public BigDecimal getRealizedCostBasis() { return realizedCostBasis; }
         public long getTotalTradeCount() { return totalTradeCount; }
         public long getUniqueStocksTraded() { return uniqueStocksTraded; }
         
         public BigDecimal getRealizedGainLossPercentage() {
-            if (totalBuyAmount.compareTo(BigDecimal.ZERO) == 0) {
+            if (realizedCostBasis.compareTo(BigDecimal.ZERO) == 0) {
                 return BigDecimal.ZERO;
             }
-            return realizedGainLoss.divide(totalBuyAmount, 4, java.math.RoundingMode.HALF_UP)
+            return realizedGainLoss.divide(realizedCostBasis, 4, java.math.RoundingMode.HALF_UP)
                     .multiply(BigDecimal.valueOf(100));
         }
     }
@@ -0,0 +1,103 @@
+package com.stocktrade.service;
+
+import com.stocktrade.entity.Trade;
+import com.stocktrade.entity.UserTradeStats;
+import com.stocktrade.repository.TradeRepository;
+import com.stocktrade.repository.UserTradeStatsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+
+@Service
+@Transactional
+public class TradeStatsService {
+    
+    private final UserTradeStatsRepository statsRepository;
+    private final TradeRepository tradeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    
+    private Boolean postgres;
+    
+    @Autowired
+    public TradeStatsService(UserTradeStatsRepository statsRepository, TradeRepository tradeRepository,
+                             JdbcTemplate jdbcTemplate) {
+        this.statsRepository = statsRepository;
+        this.tradeRepository = tradeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    // Called after the trade is saved, inside the same transaction
+    public void recordTrade(Trade trade) {
+        if (trade.getTradeStatus() != Trade.TradeStatus.COMPLETED) {
+            return;
+        }
+        Long userId = trade.getUser().getId();
+        UserTradeStats stats = statsRepository.findByUserIdForUpdate(userId).orElse(null);
+        if (stats == null) {
+            // First counted trade, or history predating the stats table: the rebuild already includes this trade
+            rebuild(userId);
+            return;
+        }
+        stats.recordTrade(trade.getTradeType(), trade.getTotalAmount(), trade.getStock().getSymbol());
+        statsRepository.save(stats);
+    }
+    
+    // Users without a row yet get the totals computed but not stored; the row is created by their next trade
+    @Transactional(readOnly = true)
+    public UserTradeStats getStats(Long userId) {
+        return statsRepository.findById(userId).orElseGet(() -> compute(new UserTradeStats(userId)));
+    }
+    
+    public UserTradeStats rebuild(Long userId) {
+        // Two first trades for the same user both get here; the upsert lets the second wait on the first
+        // instead of failing its trade on the primary key, and the row lock serialises the recompute
+        insertIfAbsent(userId);
+        UserTradeStats stats = statsRepository.findByUserIdForUpdate(userId)
+                .orElseThrow(() -> new IllegalStateException("Trade stats row missing for user " + userId));
+        return statsRepository.save(compute(stats));
+    }
+    
+    private UserTradeStats compute(UserTradeStats stats) {
+        Long userId = stats.getUserId();
+        stats.setBuyTotal(sumOrZero(tradeRepository.sumCompletedTradeAmount(userId, Trade.TradeType.BUY)));
+        stats.setSellTotal(sumOrZero(tradeRepository.sumCompletedTradeAmount(userId, Trade.TradeType.SELL)));
+        stats.setTradeCount(tradeRepository.countCompletedTradesByUser(userId));
+        stats.setTradedSymbols(new HashSet<>(tradeRepository.findTradedStockSymbolsByUser(userId)));
+        stats.setDistinctSymbols(stats.getTradedSymbols().size());
+        return stats;
+    }
+    
+    private void insertIfAbsent(Long userId) {
+        String insert = "INSERT INTO user_trade_stats (user_id, buy_total, sell_total, trade_count, distinct_symbols, "
+                + "updated_at) VALUES (?, 0, 0, 0, 0, CURRENT_TIMESTAMP)";
+        if (isPostgres()) {
+            jdbcTemplate.update(insert + " ON CONFLICT (user_id) DO NOTHING", userId);
+            return;
+        }
+        // No ON CONFLICT on H2, but a failed statement there doesn't abort the transaction
+        try {
+            jdbcTemplate.update(insert, userId);
+        } catch (DuplicateKeyException e) {
+            // Another first trade created the row
+        }
+    }
+    
+    private boolean isPostgres() {
+        if (postgres == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(product);
+        }
+        return postgres;
+    }
+    
+    private BigDecimal sumOrZero(BigDecimal total) {
+        return total != null ? total : BigDecimal.ZERO;
+    }
+}
@@ -1,8 +1,11 @@
 package com.stocktrade.service;
 
 import com.stocktrade.entity.User;
+import com.stocktrade.event.AccountUpdatedEvent;
+import com.stocktrade.event.UserAccessChangedEvent;
 import com.stocktrade.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -20,11 +23,14 @@ public class UserService implements UserDetailsService {
     
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                      ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.eventPublisher = eventPublisher;
     }
     
     @Override
@@ -42,7 +48,7 @@ public class UserService implements UserDetailsService {
         }
         
         User user = new User(username, email, passwordEncoder.encode(password), firstName, lastName);
-        return userRepository.save(user);
+        return publishAccountUpdate(userRepository.save(user));
     }
     
     public User createUser(User user) {
@@ -54,7 +60,7 @@ public class UserService implements UserDetailsService {
         }
         
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        return publishAccountUpdate(userRepository.save(user));
     }
     
     public Optional<User> findById(Long id) {
@@ -96,13 +102,17 @@ public class UserService implements UserDetailsService {
             throw new IllegalArgumentException("Email already exists: " + user.getEmail());
         }
         
+        if (!existingUser.getUsername().equals(user.getUsername())) {
+            publishAccessChange(existingUser);
+        }
+        
         // Update fields
         existingUser.setUsername(user.getUsername());
         existingUser.setEmail(user.getEmail());
         existingUser.setFirstName(user.getFirstName());
         existingUser.setLastName(user.getLastName());
         
-        return userRepository.save(existingUser);
+        return publishAccountUpdate(userRepository.save(existingUser));
     }
     
     public User updateUserProfile(Long userId, String firstName, String lastName, String email) {
@@ -129,6 +139,18 @@ public class UserService implements UserDetailsService {
         }
         
         user.setPassword(passwordEncoder.encode(newPassword));
+        return publishAccessChange(userRepository.save(user));
+    }
+    
+    public User updateCostBasisMethod(Long userId, User.CostBasisMethod method) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
+        
+        if (method == null) {
+            throw new IllegalArgumentException("Cost basis method is required");
+        }
+        
+        user.setCostBasisMethod(method);
         return userRepository.save(user);
     }
     
@@ -141,10 +163,20 @@ public class UserService implements UserDetailsService {
         }
         
         user.setCashBalance(newBalance);
-        return userRepository.save(user);
+        return publishAccountUpdate(userRepository.save(user));
     }
     
     public User addCash(Long userId, BigDecimal amount) {
+        return publishAccountUpdate(creditCash(userId, amount));
+    }
+    
+    public User subtractCash(Long userId, BigDecimal amount) {
+        return publishAccountUpdate(debitCash(userId, amount));
+    }
+    
+    // Trade legs move cash through these without an AccountUpdatedEvent; the trade's TradeExecutedEvent already
+    // refreshes the account, and a second event would reload it twice per trade
+    public User creditCash(Long userId, BigDecimal amount) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
         
@@ -156,7 +188,7 @@ public class UserService implements UserDetailsService {
         return userRepository.save(user);
     }
     
-    public User subtractCash(Long userId, BigDecimal amount) {
+    public User debitCash(Long userId, BigDecimal amount) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
         
@@ -177,7 +209,7 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
         
         user.setIsActive(false);
-        return userRepository.save(user);
+        return publishAccessChange(publishAccountUpdate(userRepository.save(user)));
     }
     
     public User reactivateUser(Long userId) {
@@ -185,7 +217,19 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
         
         user.setIsActive(true);
-        return userRepository.save(user);
+        return publishAccessChange(publishAccountUpdate(userRepository.save(user)));
+    }
+    
+    public User updateRole(Long userId, User.Role role) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
+        
+        if (role == null) {
+            throw new IllegalArgumentException("Role is required");
+        }
+        
+        user.setRole(role);
+        return publishAccessChange(userRepository.save(user));
     }
     
     public boolean existsByUsername(String username) {
@@ -203,4 +247,14 @@ public class UserService implements UserDetailsService {
     public List<User> getUsersWithTradesInStock(String symbol) {
         return userRepository.findUsersWithTradesInStock(symbol);
     }
+    
+    private User publishAccountUpdate(User user) {
+        eventPublisher.publishEvent(new AccountUpdatedEvent(user.getId()));
+        return user;
+    }
+    
+    private User publishAccessChange(User user) {
+        eventPublisher.publishEvent(new UserAccessChangedEvent(user.getUsername()));
+        return user;
+    }
 }
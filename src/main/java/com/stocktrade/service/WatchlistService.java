@@ -0,0 +1,295 @@
+package com.stocktrade.service;
+
+import com.stocktrade.entity.Stock;
+import com.stocktrade.entity.WatchlistItem;
+import com.stocktrade.repository.StockRepository;
+import com.stocktrade.repository.UserRepository;
+import com.stocktrade.repository.WatchlistItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Persisted per-user watchlists served from memory. Clients keep the version of their last response and ask
+// for what changed since; the answer comes from StockRankingService's change log, so a poll costs the number
+// of changed symbols, not the size of the list. Edits take a version from the same clock, and a client whose
+// version predates an edit (or a restart) gets the full list once. Streams push the same deltas on a timer.
+@Service
+public class WatchlistService {
+    
+    private static final Logger log = LoggerFactory.getLogger(WatchlistService.class);
+    
+    private final WatchlistItemRepository watchlistItemRepository;
+    private final StockRepository stockRepository;
+    private final UserRepository userRepository;
+    private final StockRankingService stockRankingService;
+    private final int maxSymbols;
+    private final long streamTimeoutMillis;
+    private final long heartbeatMillis;
+    
+    // Edits are rare and run one at a time, so a list reloaded after a commit cannot be published over a later
+    // one. They publish the list and its version together under lock, and reads take both under it, so a
+    // response never pairs a version with a list from before an edit at or below that version.
+    private final Object editLock = new Object();
+    private final Object lock = new Object();
+    private final Map<Long, Watchlist> watchlists = new ConcurrentHashMap<>();
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    // SseEmitter.send blocks on the client's socket, so sends leave the shared scheduling pool
+    private final ExecutorService sender;
+    
+    @Autowired
+    public WatchlistService(WatchlistItemRepository watchlistItemRepository,
+                            StockRepository stockRepository,
+                            UserRepository userRepository,
+                            StockRankingService stockRankingService,
+                            @Value("${watchlists.max-symbols:200}") int maxSymbols,
+                            @Value("${watchlists.stream.timeout-ms:1800000}") long streamTimeoutMillis,
+                            @Value("${watchlists.stream.heartbeat-ms:15000}") long heartbeatMillis,
+                            @Value("${watchlists.stream.sender-threads:2}") int senderThreads) {
+        this.watchlistItemRepository = watchlistItemRepository;
+        this.stockRepository = stockRepository;
+        this.userRepository = userRepository;
+        this.stockRankingService = stockRankingService;
+        this.maxSymbols = maxSymbols;
+        this.streamTimeoutMillis = streamTimeoutMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("watchlist-stream-");
+        threadFactory.setDaemon(true);
+        this.sender = Executors.newFixedThreadPool(senderThreads, threadFactory);
+    }
+    
+    public WatchlistChanges addSymbol(Long userId, String symbol) {
+        Stock stock = stockRepository.findBySymbolAndIsActiveTrue(symbol)
+                .orElseThrow(() -> new IllegalArgumentException("Stock not found: " + symbol));
+        synchronized (editLock) {
+            Watchlist watchlist = getWatchlist(userId);
+            if (!watchlist.symbols.contains(symbol)) {
+                if (watchlist.symbols.size() >= maxSymbols) {
+                    throw new IllegalArgumentException("A watchlist holds at most " + maxSymbols + " symbols");
+                }
+                try {
+                    watchlistItemRepository.save(new WatchlistItem(userRepository.getReferenceById(userId), stock));
+                } catch (DataIntegrityViolationException e) {
+                    // Already stored, e.g. by another instance; the reload below picks it up
+                }
+                publish(userId);
+            }
+        }
+        return getChanges(userId, null);
+    }
+    
+    public boolean removeSymbol(Long userId, String symbol) {
+        Stock stock = stockRepository.findBySymbol(symbol).orElse(null);
+        if (stock == null) {
+            return false;
+        }
+        synchronized (editLock) {
+            if (watchlistItemRepository.deleteByUserIdAndStockId(userId, stock.getId()) == 0) {
+                return false;
+            }
+            publish(userId);
+            return true;
+        }
+    }
+    
+    // Everything on the list when since is null, older than the last edit or from before a restart;
+    // otherwise only the symbols that changed after it
+    public WatchlistChanges getChanges(Long userId, Long since) {
+        Watchlist watchlist = getWatchlist(userId);
+        long version;
+        synchronized (lock) {
+            watchlist = watchlists.getOrDefault(userId, watchlist);
+            version = stockRankingService.getVersion();
+        }
+        
+        List<String> changed = null;
+        if (since != null && since >= watchlist.version && since <= version) {
+            changed = stockRankingService.changedSince(since, watchlist.symbols);
+        }
+        boolean full = changed == null;
+        Collection<String> symbols = full ? watchlist.symbols : new TreeSet<>(changed);
+        
+        List<Stock> quotes = new ArrayList<>(symbols.size());
+        List<String> inactive = new ArrayList<>();
+        for (String symbol : symbols) {
+            Stock stock = stockRankingService.getActiveStock(symbol);
+            if (stock != null) {
+                quotes.add(stock);
+            } else {
+                inactive.add(symbol);
+            }
+        }
+        return new WatchlistChanges(version, full, quotes, inactive);
+    }
+    
+    public SseEmitter subscribe(Long userId, Long since) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        Subscription subscription = new Subscription(userId, emitter);
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onError(error -> subscriptions.remove(subscription));
+        
+        // The first event is sent even when nothing changed, so the client learns the current version
+        if (subscription.push(getChanges(userId, since), true)) {
+            subscriptions.add(subscription);
+        }
+        return emitter;
+    }
+    
+    // One pass over open streams. Streams already at the current version cost a comparison; the rest get the
+    // changes since the version they last received. The pass only computes deltas and hands the writes to the
+    // sender pool. A stream whose previous write is still in flight is skipped, so a slow client holds at most
+    // one sender thread and later passes send it everything it missed in one event.
+    @Scheduled(fixedDelayString = "${watchlists.stream.interval-ms:1000}")
+    public void pushChanges() {
+        long version = stockRankingService.getVersion();
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.sending.compareAndSet(false, true)) {
+                continue;
+            }
+            Runnable send;
+            if (subscription.version != version) {
+                WatchlistChanges changes = getChanges(subscription.userId, subscription.version);
+                send = () -> finish(subscription, subscription.push(changes, false));
+            } else {
+                send = () -> finish(subscription, subscription.heartbeat());
+            }
+            try {
+                sender.execute(send);
+            } catch (RejectedExecutionException e) {
+                subscription.sending.set(false);
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdown();
+    }
+    
+    private void finish(Subscription subscription, boolean delivered) {
+        if (!delivered) {
+            subscriptions.remove(subscription);
+        }
+        subscription.sending.set(false);
+    }
+    
+    private Watchlist getWatchlist(Long userId) {
+        Watchlist watchlist = watchlists.get(userId);
+        if (watchlist != null) {
+            return watchlist;
+        }
+        // Loaded outside the lock; if an edit published first, keep the edit's list
+        Watchlist loaded = load(userId);
+        synchronized (lock) {
+            return watchlists.computeIfAbsent(userId, id -> loaded);
+        }
+    }
+    
+    // Re-reads the list after a committed edit and publishes it at a fresh version
+    private void publish(Long userId) {
+        Watchlist reloaded = load(userId);
+        synchronized (lock) {
+            watchlists.put(userId, new Watchlist(reloaded.symbols, stockRankingService.nextVersion()));
+        }
+    }
+    
+    private Watchlist load(Long userId) {
+        List<String> symbols = watchlistItemRepository.findSymbolsByUserId(userId);
+        return new Watchlist(Collections.unmodifiableSet(new TreeSet<>(symbols)), stockRankingService.getVersion());
+    }
+    
+    // Immutable; version is when the list last changed, so responses older than it must be full
+    private static final class Watchlist {
+        private final Set<String> symbols;
+        private final long version;
+        
+        Watchlist(Set<String> symbols, long version) {
+            this.symbols = symbols;
+            this.version = version;
+        }
+    }
+    
+    private final class Subscription {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile long version;
+        private volatile long lastSentAt;
+        
+        Subscription(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+        
+        // The event id is the version, so a reconnecting EventSource resumes through Last-Event-ID
+        boolean push(WatchlistChanges changes, boolean always) {
+            version = changes.getVersion();
+            if (!always && !changes.isFull() && changes.getQuotes().isEmpty() && changes.getInactive().isEmpty()) {
+                return true;
+            }
+            try {
+                emitter.send(SseEmitter.event().id(Long.toString(changes.getVersion())).name("changes").data(changes));
+                lastSentAt = System.currentTimeMillis();
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Watchlist stream for user {} closed: {}", userId, e.getMessage());
+                return false;
+            }
+        }
+        
+        // A comment line keeps idle connections open through proxies and detects clients that went away
+        boolean heartbeat() {
+            if (System.currentTimeMillis() - lastSentAt < heartbeatMillis) {
+                return true;
+            }
+            try {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+                lastSentAt = System.currentTimeMillis();
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Watchlist stream for user {} closed: {}", userId, e.getMessage());
+                return false;
+            }
+        }
+    }
+    
+    public static class WatchlistChanges {
+        private final long version;
+        private final boolean full;
+        private final List<Stock> quotes;
+        private final List<String> inactive;
+        
+        WatchlistChanges(long version, boolean full, List<Stock> quotes, List<String> inactive) {
+            this.version = version;
+            this.full = full;
+            this.quotes = quotes;
+            this.inactive = inactive;
+        }
+        
+        // Getters
+        public long getVersion() { return version; }
+        public boolean isFull() { return full; }
+        public List<Stock> getQuotes() { return quotes; }
+        public List<String> getInactive() { return inactive; }
+    }
+}
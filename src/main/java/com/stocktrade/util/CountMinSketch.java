@@ -0,0 +1,67 @@
+package com.stocktrade.util;
+
+import java.util.Arrays;
+
+// Approximate counts for an unbounded key set in fixed memory. Estimates never undercount; they overcount
+// by at most about total / width with probability 1 - 2^-depth. Not thread-safe.
+public class CountMinSketch {
+    
+    private final int mask;
+    private final long[][] rows;
+    private long total;
+    
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || Integer.bitCount(width) != 1 || depth <= 0) {
+            throw new IllegalArgumentException("Width must be a positive power of two and depth positive");
+        }
+        this.mask = width - 1;
+        this.rows = new long[depth][width];
+    }
+    
+    // Returns the new estimate for the key
+    public long add(String key, long count) {
+        long hash = mix(key.hashCode());
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < rows.length; row++) {
+            int slot = slot(hash, row);
+            rows[row][slot] += count;
+            estimate = Math.min(estimate, rows[row][slot]);
+        }
+        total += count;
+        return estimate;
+    }
+    
+    public long estimate(String key) {
+        long hash = mix(key.hashCode());
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < rows.length; row++) {
+            estimate = Math.min(estimate, rows[row][slot(hash, row)]);
+        }
+        return estimate;
+    }
+    
+    public long getTotal() { return total; }
+    
+    public void clear() {
+        for (long[] row : rows) {
+            Arrays.fill(row, 0);
+        }
+        total = 0;
+    }
+    
+    // Double hashing: row i uses h1 + i * h2, both taken from one 64-bit mix
+    private int slot(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return (h1 + row * h2) & mask;
+    }
+    
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,261 @@
+package com.stocktrade.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Order-statistic treap keyed by (score desc, key asc). Updates and rank lookups are O(log n);
+// top/bottom N walk from either end in O(log n + N).
+public class RankedIndex<K extends Comparable<K>> {
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<K, Double> scores = new HashMap<>();
+    private Node<K> root;
+    
+    private static final class Node<K> {
+        final K key;
+        final double score;
+        final int priority;
+        Node<K> left;
+        Node<K> right;
+        int size = 1;
+        
+        Node(K key, double score) {
+            this.key = key;
+            this.score = score;
+            this.priority = ThreadLocalRandom.current().nextInt();
+        }
+    }
+    
+    public static final class Entry<K> {
+        private final K key;
+        private final double score;
+        private final int rank;
+        
+        Entry(K key, double score, int rank) {
+            this.key = key;
+            this.score = score;
+            this.rank = rank;
+        }
+        
+        public K getKey() { return key; }
+        public double getScore() { return score; }
+        public int getRank() { return rank; }
+    }
+    
+    public void put(K key, double score) {
+        if (Double.isNaN(score)) {
+            throw new IllegalArgumentException("Score must be a number");
+        }
+        lock.writeLock().lock();
+        try {
+            Double previous = scores.put(key, score);
+            if (previous != null) {
+                if (previous == score) {
+                    return;
+                }
+                root = delete(root, key, previous);
+            }
+            root = insert(root, new Node<>(key, score));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public boolean remove(K key) {
+        lock.writeLock().lock();
+        try {
+            Double previous = scores.remove(key);
+            if (previous == null) {
+                return false;
+            }
+            root = delete(root, key, previous);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            scores.clear();
+            root = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size(root);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public Double getScore(K key) {
+        lock.readLock().lock();
+        try {
+            return scores.get(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // 1-based position from the highest score, or -1 when the key is not ranked
+    public int rank(K key) {
+        lock.readLock().lock();
+        try {
+            Double score = scores.get(key);
+            if (score == null) {
+                return -1;
+            }
+            int rank = 0;
+            Node<K> node = root;
+            while (node != null) {
+                int cmp = compare(score, key, node);
+                if (cmp < 0) {
+                    node = node.left;
+                } else {
+                    rank += size(node.left) + 1;
+                    if (cmp == 0) {
+                        return rank;
+                    }
+                    node = node.right;
+                }
+            }
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public List<Entry<K>> top(int limit) {
+        lock.readLock().lock();
+        try {
+            List<Entry<K>> result = new ArrayList<>(Math.min(Math.max(limit, 0), size(root)));
+            Deque<Node<K>> stack = new ArrayDeque<>();
+            Node<K> node = root;
+            while ((node != null || !stack.isEmpty()) && result.size() < limit) {
+                while (node != null) {
+                    stack.push(node);
+                    node = node.left;
+                }
+                node = stack.pop();
+                result.add(new Entry<>(node.key, node.score, result.size() + 1));
+                node = node.right;
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Lowest scores first; ranks still count from the top
+    public List<Entry<K>> bottom(int limit) {
+        lock.readLock().lock();
+        try {
+            int total = size(root);
+            List<Entry<K>> result = new ArrayList<>(Math.min(Math.max(limit, 0), total));
+            Deque<Node<K>> stack = new ArrayDeque<>();
+            Node<K> node = root;
+            while ((node != null || !stack.isEmpty()) && result.size() < limit) {
+                while (node != null) {
+                    stack.push(node);
+                    node = node.right;
+                }
+                node = stack.pop();
+                result.add(new Entry<>(node.key, node.score, total - result.size()));
+                node = node.left;
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private int compare(double score, K key, Node<K> node) {
+        int cmp = Double.compare(node.score, score);
+        return cmp != 0 ? cmp : key.compareTo(node.key);
+    }
+    
+    private Node<K> insert(Node<K> node, Node<K> inserted) {
+        if (node == null) {
+            return inserted;
+        }
+        if (inserted.priority > node.priority) {
+            split(node, inserted);
+            return update(inserted);
+        }
+        if (compare(inserted.score, inserted.key, node) < 0) {
+            node.left = insert(node.left, inserted);
+        } else {
+            node.right = insert(node.right, inserted);
+        }
+        return update(node);
+    }
+    
+    // Splits the subtree around the pivot: nodes ordered before it become its left child, the rest its right
+    private void split(Node<K> node, Node<K> pivot) {
+        if (node == null) {
+            pivot.left = null;
+            pivot.right = null;
+            return;
+        }
+        if (compare(pivot.score, pivot.key, node) < 0) {
+            split(node.left, pivot);
+            node.left = pivot.right;
+            pivot.right = update(node);
+        } else {
+            split(node.right, pivot);
+            node.right = pivot.left;
+            pivot.left = update(node);
+        }
+    }
+    
+    private Node<K> delete(Node<K> node, K key, double score) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(score, key, node);
+        if (cmp < 0) {
+            node.left = delete(node.left, key, score);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, key, score);
+        } else {
+            return merge(node.left, node.right);
+        }
+        return update(node);
+    }
+    
+    private Node<K> merge(Node<K> left, Node<K> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+    
+    private Node<K> update(Node<K> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        return node;
+    }
+    
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+}
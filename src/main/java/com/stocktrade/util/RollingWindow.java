@@ -0,0 +1,86 @@
+package com.stocktrade.util;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+// Fixed ring of time buckets covering a trailing span. Recording is O(1); totals sum the live
+// buckets in O(bucketCount). Bucket width bounds how far the window edge can be off.
+public class RollingWindow {
+    
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final long[] bucketIds;
+    private final long[] volumes;
+    private final double[] notionals;
+    private final long[] counts;
+    private long latestBucketId = Long.MIN_VALUE;
+    
+    public RollingWindow(Duration span, int bucketCount) {
+        if (bucketCount <= 0 || span.toMillis() % bucketCount != 0) {
+            throw new IllegalArgumentException("Span must divide evenly into a positive number of buckets");
+        }
+        this.bucketMillis = span.toMillis() / bucketCount;
+        this.bucketCount = bucketCount;
+        this.bucketIds = new long[bucketCount];
+        this.volumes = new long[bucketCount];
+        this.notionals = new double[bucketCount];
+        this.counts = new long[bucketCount];
+        Arrays.fill(bucketIds, Long.MIN_VALUE);
+    }
+    
+    public synchronized void record(long timestampMillis, long quantity, double notional) {
+        long bucketId = Math.floorDiv(timestampMillis, bucketMillis);
+        if (latestBucketId != Long.MIN_VALUE && bucketId <= latestBucketId - bucketCount) {
+            return;
+        }
+        latestBucketId = Math.max(latestBucketId, bucketId);
+        
+        int slot = (int) Math.floorMod(bucketId, (long) bucketCount);
+        if (bucketIds[slot] != bucketId) {
+            bucketIds[slot] = bucketId;
+            volumes[slot] = 0;
+            notionals[slot] = 0.0;
+            counts[slot] = 0;
+        }
+        volumes[slot] += quantity;
+        notionals[slot] += notional;
+        counts[slot]++;
+    }
+    
+    public synchronized Totals totals(long nowMillis) {
+        long newest = Math.floorDiv(nowMillis, bucketMillis);
+        long oldest = newest - bucketCount;
+        long volume = 0;
+        double notional = 0.0;
+        long count = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            if (bucketIds[i] > oldest && bucketIds[i] <= newest) {
+                volume += volumes[i];
+                notional += notionals[i];
+                count += counts[i];
+            }
+        }
+        return new Totals(volume, notional, count);
+    }
+    
+    public static final class Totals {
+        private final long volume;
+        private final double notional;
+        private final long count;
+        
+        Totals(long volume, double notional, long count) {
+            this.volume = volume;
+            this.notional = notional;
+            this.count = count;
+        }
+        
+        public long getVolume() { return volume; }
+        public double getNotional() { return notional; }
+        public long getCount() { return count; }
+        
+        // Volume-weighted average price, or NaN when nothing traded in the window
+        public double getVwap() {
+            return volume > 0 ? notional / volume : Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.stocktrade.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// Approximate heaviest keys over a trailing window. Each time bucket holds a count-min sketch and a
+// min-heap of its K heaviest keys; a bucket is cleared when the ring wraps, so old traffic decays out
+// one bucket at a time. A query merges the candidates of the buckets inside the window and ranks them
+// by their summed sketch estimates. Keys that never reach a bucket's top K are not reported.
+public class SlidingHeavyHitters {
+    
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final int capacity;
+    private final long[] bucketIds;
+    private final CountMinSketch[] sketches;
+    private final List<Leaders> leaders = new ArrayList<>();
+    private long latestBucketId = Long.MIN_VALUE;
+    
+    public SlidingHeavyHitters(Duration span, int bucketCount, int capacity, int sketchWidth, int sketchDepth) {
+        if (bucketCount <= 0 || span.toMillis() % bucketCount != 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Span must divide evenly into a positive number of buckets");
+        }
+        this.bucketMillis = span.toMillis() / bucketCount;
+        this.bucketCount = bucketCount;
+        this.capacity = capacity;
+        this.bucketIds = new long[bucketCount];
+        this.sketches = new CountMinSketch[bucketCount];
+        Arrays.fill(bucketIds, Long.MIN_VALUE);
+        for (int i = 0; i < bucketCount; i++) {
+            sketches[i] = new CountMinSketch(sketchWidth, sketchDepth);
+            leaders.add(new Leaders());
+        }
+    }
+    
+    public synchronized void add(long timestampMillis, String key, long count) {
+        long bucketId = Math.floorDiv(timestampMillis, bucketMillis);
+        if (latestBucketId != Long.MIN_VALUE && bucketId <= latestBucketId - bucketCount) {
+            return;
+        }
+        latestBucketId = Math.max(latestBucketId, bucketId);
+        
+        int slot = (int) Math.floorMod(bucketId, (long) bucketCount);
+        if (bucketIds[slot] != bucketId) {
+            bucketIds[slot] = bucketId;
+            sketches[slot].clear();
+            leaders.get(slot).clear();
+        }
+        long estimate = sketches[slot].add(key, count);
+        leaders.get(slot).offer(key, estimate);
+    }
+    
+    public synchronized List<Entry> top(long nowMillis, Duration window, int limit) {
+        List<Integer> slots = liveSlots(nowMillis, window);
+        Set<String> candidates = new HashSet<>();
+        for (int slot : slots) {
+            candidates.addAll(leaders.get(slot).members.keySet());
+        }
+        
+        List<Entry> entries = new ArrayList<>(candidates.size());
+        for (String key : candidates) {
+            entries.add(new Entry(key, sum(slots, key)));
+        }
+        entries.sort(Comparator.comparingLong(Entry::getCount).reversed().thenComparing(Entry::getKey));
+        return entries.size() > limit ? new ArrayList<>(entries.subList(0, limit)) : entries;
+    }
+    
+    public synchronized void clear() {
+        Arrays.fill(bucketIds, Long.MIN_VALUE);
+        for (int i = 0; i < bucketCount; i++) {
+            sketches[i].clear();
+            leaders.get(i).clear();
+        }
+        latestBucketId = Long.MIN_VALUE;
+    }
+    
+    public synchronized long estimate(long nowMillis, Duration window, String key) {
+        return sum(liveSlots(nowMillis, window), key);
+    }
+    
+    private long sum(List<Integer> slots, String key) {
+        long total = 0;
+        for (int slot : slots) {
+            total += sketches[slot].estimate(key);
+        }
+        return total;
+    }
+    
+    // Windows are rounded up to whole buckets and capped at the full span
+    private List<Integer> liveSlots(long nowMillis, Duration window) {
+        long buckets = Math.min(bucketCount, Math.max(1, (window.toMillis() + bucketMillis - 1) / bucketMillis));
+        long newest = Math.floorDiv(nowMillis, bucketMillis);
+        long oldest = newest - buckets;
+        List<Integer> slots = new ArrayList<>();
+        for (int i = 0; i < bucketCount; i++) {
+            if (bucketIds[i] > oldest && bucketIds[i] <= newest) {
+                slots.add(i);
+            }
+        }
+        return slots;
+    }
+    
+    // The K heaviest keys of one bucket, with the lightest on top of the heap for eviction
+    private final class Leaders {
+        private final PriorityQueue<Candidate> heap = new PriorityQueue<>(Comparator.comparingLong(c -> c.count));
+        private final Map<String, Candidate> members = new HashMap<>();
+        
+        void offer(String key, long estimate) {
+            Candidate candidate = members.get(key);
+            if (candidate != null) {
+                heap.remove(candidate);
+                candidate.count = estimate;
+                heap.add(candidate);
+                return;
+            }
+            if (members.size() >= capacity) {
+                if (heap.peek().count >= estimate) {
+                    return;
+                }
+                members.remove(heap.poll().key);
+            }
+            candidate = new Candidate(key, estimate);
+            members.put(key, candidate);
+            heap.add(candidate);
+        }
+        
+        void clear() {
+            heap.clear();
+            members.clear();
+        }
+    }
+    
+    private static final class Candidate {
+        private final String key;
+        private long count;
+        
+        Candidate(String key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+    }
+    
+    public static final class Entry {
+        private final String key;
+        private final long count;
+        
+        Entry(String key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+        
+        public String getKey() { return key; }
+        public long getCount() { return count; }
+    }
+}
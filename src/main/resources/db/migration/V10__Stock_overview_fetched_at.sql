@@ -0,0 +1,4 @@
+-- When the company overview was last requested, so symbols without a sector (ETFs, unclassified listings)
+-- are not re-fetched on every refresh
+
+ALTER TABLE stocks ADD COLUMN overview_fetched_at TIMESTAMP;
@@ -0,0 +1,13 @@
+-- Daily closing prices used for risk analytics
+
+CREATE TABLE price_history (
+    id BIGSERIAL PRIMARY KEY,
+    stock_id BIGINT NOT NULL,
+    trade_date DATE NOT NULL,
+    close_price DECIMAL(19,2) NOT NULL,
+    recorded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_price_history_stock FOREIGN KEY (stock_id) REFERENCES stocks(id) ON DELETE CASCADE,
+    CONSTRAINT uk_price_history_stock_date UNIQUE (stock_id, trade_date)
+);
+
+CREATE INDEX idx_price_history_trade_date ON price_history(trade_date);
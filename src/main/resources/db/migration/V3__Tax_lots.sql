@@ -0,0 +1,36 @@
+-- Tax lot tracking and incrementally maintained realized P&L
+
+ALTER TABLE users ADD COLUMN cost_basis_method VARCHAR(10) NOT NULL DEFAULT 'FIFO'
+    CHECK (cost_basis_method IN ('FIFO', 'LIFO', 'HIFO'));
+ALTER TABLE users ADD COLUMN realized_gain_loss DECIMAL(19,2) NOT NULL DEFAULT 0.00;
+ALTER TABLE users ADD COLUMN realized_cost_basis DECIMAL(19,2) NOT NULL DEFAULT 0.00;
+
+CREATE TABLE tax_lots (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    stock_id BIGINT NOT NULL,
+    original_quantity INTEGER NOT NULL,
+    remaining_quantity INTEGER NOT NULL,
+    cost_per_share DECIMAL(19,2) NOT NULL,
+    acquired_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    closed_at TIMESTAMP,
+    CONSTRAINT fk_tax_lot_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_tax_lot_stock FOREIGN KEY (stock_id) REFERENCES stocks(id) ON DELETE CASCADE
+);
+
+CREATE TABLE realized_gains (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    stock_id BIGINT NOT NULL,
+    shares_sold BIGINT NOT NULL DEFAULT 0,
+    proceeds DECIMAL(19,2) NOT NULL DEFAULT 0.00,
+    cost_basis DECIMAL(19,2) NOT NULL DEFAULT 0.00,
+    realized_gain_loss DECIMAL(19,2) NOT NULL DEFAULT 0.00,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_realized_gain_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_realized_gain_stock FOREIGN KEY (stock_id) REFERENCES stocks(id) ON DELETE CASCADE,
+    CONSTRAINT uk_realized_gain_user_stock UNIQUE (user_id, stock_id)
+);
+
+-- Partial index serves the open-lot scans done on every sell
+CREATE INDEX idx_tax_lots_open ON tax_lots(user_id, stock_id, acquired_at) WHERE remaining_quantity > 0;
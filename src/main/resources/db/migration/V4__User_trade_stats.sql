@@ -0,0 +1,35 @@
+-- Per-user trade counters maintained alongside each trade insert
+
+CREATE TABLE user_trade_stats (
+    user_id BIGINT PRIMARY KEY,
+    buy_total DECIMAL(19,2) NOT NULL DEFAULT 0.00,
+    sell_total DECIMAL(19,2) NOT NULL DEFAULT 0.00,
+    trade_count BIGINT NOT NULL DEFAULT 0,
+    distinct_symbols INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_user_trade_stats_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE TABLE user_traded_symbols (
+    user_id BIGINT NOT NULL,
+    symbol VARCHAR(10) NOT NULL,
+    PRIMARY KEY (user_id, symbol),
+    CONSTRAINT fk_user_traded_symbols_stats FOREIGN KEY (user_id) REFERENCES user_trade_stats(user_id) ON DELETE CASCADE
+);
+
+-- Backfill from existing completed trades
+INSERT INTO user_trade_stats (user_id, buy_total, sell_total, trade_count, distinct_symbols)
+SELECT t.user_id,
+       COALESCE(SUM(CASE WHEN t.trade_type = 'BUY' THEN t.total_amount END), 0.00),
+       COALESCE(SUM(CASE WHEN t.trade_type = 'SELL' THEN t.total_amount END), 0.00),
+       COUNT(*),
+       COUNT(DISTINCT t.stock_id)
+FROM trades t
+WHERE t.trade_status = 'COMPLETED'
+GROUP BY t.user_id;
+
+INSERT INTO user_traded_symbols (user_id, symbol)
+SELECT DISTINCT t.user_id, s.symbol
+FROM trades t
+JOIN stocks s ON s.id = t.stock_id
+WHERE t.trade_status = 'COMPLETED';
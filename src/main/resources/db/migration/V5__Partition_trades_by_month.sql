@@ -0,0 +1,76 @@
+-- Monthly range partitioning of trades on executed_at
+-- New partitions are created ahead of time and old ones detached by TradePartitionService
+
+ALTER TABLE trades RENAME TO trades_unpartitioned;
+ALTER INDEX trades_pkey RENAME TO trades_unpartitioned_pkey;
+-- These come from V1; a schema created by Hibernate's ddl-auto has none of them
+DROP INDEX IF EXISTS idx_trades_user;
+DROP INDEX IF EXISTS idx_trades_stock;
+DROP INDEX IF EXISTS idx_trades_executed_at;
+DROP INDEX IF EXISTS idx_trades_user_executed;
+DROP INDEX IF EXISTS idx_trades_trade_type;
+DROP INDEX IF EXISTS idx_trades_status;
+
+-- The partition key has to be part of the primary key; ids still come from the same sequence
+CREATE TABLE trades (
+    id BIGINT NOT NULL DEFAULT nextval('trades_id_seq'),
+    user_id BIGINT NOT NULL,
+    stock_id BIGINT NOT NULL,
+    trade_type VARCHAR(4) NOT NULL CHECK (trade_type IN ('BUY', 'SELL')),
+    quantity INTEGER NOT NULL,
+    price DECIMAL(19,2) NOT NULL,
+    total_amount DECIMAL(19,2) NOT NULL,
+    commission DECIMAL(19,2) NOT NULL DEFAULT 0.00,
+    trade_status VARCHAR(10) NOT NULL DEFAULT 'COMPLETED' CHECK (trade_status IN ('PENDING', 'COMPLETED', 'CANCELLED', 'FAILED')),
+    executed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    notes TEXT,
+    CONSTRAINT trades_pkey PRIMARY KEY (id, executed_at),
+    CONSTRAINT fk_trade_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_trade_stock FOREIGN KEY (stock_id) REFERENCES stocks(id) ON DELETE CASCADE
+) PARTITION BY RANGE (executed_at);
+
+ALTER SEQUENCE trades_id_seq OWNED BY trades.id;
+
+-- Partitioned indexes cascade to every partition, including ones created later
+CREATE INDEX idx_trades_user ON trades(user_id);
+CREATE INDEX idx_trades_stock ON trades(stock_id);
+CREATE INDEX idx_trades_executed_at ON trades(executed_at);
+CREATE INDEX idx_trades_user_executed ON trades(user_id, executed_at);
+CREATE INDEX idx_trades_trade_type ON trades(trade_type);
+CREATE INDEX idx_trades_status ON trades(trade_status);
+
+-- Catches rows outside every monthly partition so an insert never fails; normally stays empty
+CREATE TABLE trades_default PARTITION OF trades DEFAULT;
+
+-- One partition per month from the oldest existing trade through three months ahead
+DO $$
+DECLARE
+    month_start DATE;
+    last_month DATE := date_trunc('month', CURRENT_DATE + INTERVAL '3 months')::DATE;
+BEGIN
+    SELECT date_trunc('month', COALESCE(MIN(executed_at), CURRENT_DATE))::DATE
+    INTO month_start
+    FROM trades_unpartitioned;
+
+    WHILE month_start <= last_month LOOP
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF trades FOR VALUES FROM (%L) TO (%L)',
+            'trades_' || to_char(month_start, 'YYYY_MM'),
+            month_start,
+            (month_start + INTERVAL '1 month')::DATE
+        );
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+INSERT INTO trades (id, user_id, stock_id, trade_type, quantity, price, total_amount, commission,
+                    trade_status, executed_at, created_at, notes)
+SELECT id, user_id, stock_id, trade_type, quantity, price, total_amount, commission,
+       trade_status, executed_at, created_at, notes
+FROM trades_unpartitioned;
+
+DROP TABLE trades_unpartitioned;
+
+-- Detached partitions are moved here instead of being dropped
+CREATE SCHEMA IF NOT EXISTS trade_archive;
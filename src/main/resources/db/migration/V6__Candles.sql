@@ -0,0 +1,18 @@
+-- Closed OHLCV bars written in batches by CandleService; open bars live only in memory
+
+CREATE TABLE candles (
+    id BIGSERIAL PRIMARY KEY,
+    stock_id BIGINT NOT NULL,
+    interval_code VARCHAR(3) NOT NULL,
+    open_time TIMESTAMP NOT NULL,
+    open_price DECIMAL(19,2) NOT NULL,
+    high_price DECIMAL(19,2) NOT NULL,
+    low_price DECIMAL(19,2) NOT NULL,
+    close_price DECIMAL(19,2) NOT NULL,
+    volume BIGINT NOT NULL DEFAULT 0,
+    trade_count INTEGER NOT NULL DEFAULT 0,
+    CONSTRAINT fk_candles_stock FOREIGN KEY (stock_id) REFERENCES stocks(id) ON DELETE CASCADE,
+    CONSTRAINT uk_candles_stock_interval_time UNIQUE (stock_id, interval_code, open_time)
+);
+
+CREATE INDEX idx_candles_open_time ON candles(open_time);
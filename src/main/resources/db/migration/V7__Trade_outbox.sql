@@ -0,0 +1,18 @@
+-- Trade events written in the same transaction as the trade, relayed to in-process consumers by TradeOutboxService
+
+CREATE TABLE trade_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    account_id BIGINT NOT NULL,
+    event_type VARCHAR(40) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_trade_outbox_created_at ON trade_outbox(created_at);
+
+-- Last outbox id each consumer has fully handled
+CREATE TABLE outbox_consumer_offsets (
+    consumer_name VARCHAR(100) PRIMARY KEY,
+    last_event_id BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
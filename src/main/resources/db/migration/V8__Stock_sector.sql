@@ -0,0 +1,3 @@
+-- Sector as reported by the provider's company overview; filled in on the first refresh of each stock
+
+ALTER TABLE stocks ADD COLUMN sector VARCHAR(100);
@@ -0,0 +1,11 @@
+-- Symbols a user follows without holding them; served from memory by WatchlistService
+
+CREATE TABLE watchlist_items (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    stock_id BIGINT NOT NULL,
+    added_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_watchlist_item_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_watchlist_item_stock FOREIGN KEY (stock_id) REFERENCES stocks(id) ON DELETE CASCADE,
+    CONSTRAINT uk_watchlist_item_user_stock UNIQUE (user_id, stock_id)
+);
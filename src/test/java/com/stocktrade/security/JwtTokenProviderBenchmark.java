@@ -0,0 +1,71 @@
+package com.stocktrade.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Per-request cost of turning a bearer token into claims:
+// - coldParse: what every request did before, building the key and parser and verifying the token twice
+//   (validateToken, then getUsernameFromToken)
+// - sharedParser: one key and parser, verifying each time (verified cache disabled)
+// - cacheHit: a token seen before, answered from the verified-token cache
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+    
+    private static final String SECRET = "benchmarkSecretKeyThatIsLongEnoughForHs512Signing0123456789abcdefghijklmnop";
+    private static final long EXPIRATION_MS = 86_400_000;
+    
+    private JwtTokenProvider uncached;
+    private JwtTokenProvider cached;
+    private String token;
+    
+    @Setup
+    public void setUp() {
+        uncached = new JwtTokenProvider(SECRET, EXPIRATION_MS, 0);
+        cached = new JwtTokenProvider(SECRET, EXPIRATION_MS, 10_000);
+        token = cached.generateToken("benchmark-user");
+        cached.parseClaims(token);
+    }
+    
+    @Benchmark
+    public Claims coldParse() {
+        coldVerify();
+        return coldVerify();
+    }
+    
+    @Benchmark
+    public Claims sharedParser() {
+        return uncached.parseClaims(token);
+    }
+    
+    @Benchmark
+    public Claims cacheHit() {
+        return cached.parseClaims(token);
+    }
+    
+    private Claims coldVerify() {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}